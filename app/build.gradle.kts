@@ -122,6 +122,11 @@ android {
         disable += "SelectedPhotoAccess"
     }
 
+    testOptions {
+        // hook logic is tested on the JVM, framework calls made on the way return defaults
+        unitTests.isReturnDefaultValues = true
+    }
+
     materialThemeBuilder {
         themes {
             for ((name, color) in listOf(
@@ -165,6 +170,14 @@ dependencies {
     implementation(libs.arscblamer)
     compileOnly(libs.lombok)
     annotationProcessor(libs.lombok)
+
+    testImplementation(libs.junit)
+    testImplementation(libs.libxposed.legacy)
+    // the android.jar stubs of org.json only return defaults
+    testImplementation(libs.org.json)
+    androidTestImplementation(libs.androidx.test.ext.junit)
+    androidTestImplementation(libs.androidx.test.runner)
+    androidTestImplementation(libs.libxposed.legacy)
 }
 
 configurations.all {
@@ -0,0 +1,133 @@
+package com.wmods.wppenhacer.xposed.core.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class DatabaseRetentionTest {
+
+    private static final String HISTORY_DB = "MessageHistory.db";
+    private static final String PLAIN_DB = "retention_plain.db";
+
+    private Context context;
+    private MessageHistory history;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(HISTORY_DB);
+        context.deleteDatabase(PLAIN_DB);
+        history = MessageHistory.open(context);
+    }
+
+    @After
+    public void tearDown() {
+        history.close();
+        context.deleteDatabase(HISTORY_DB);
+        context.deleteDatabase(PLAIN_DB);
+    }
+
+    @Test
+    public void pruneByAgeRemovesWholeHistories() {
+        // history 1 was last edited before the cutoff, history 2 after it
+        history.insertMessage(1, "a", 0);
+        history.insertMessage(1, "b", 100);
+        history.insertMessage(2, "c", 0);
+        history.insertMessage(2, "d", 300);
+
+        assertEquals(2, history.prune(200, 0));
+        assertEquals(0, history.countMessages(1));
+        assertEquals(2, history.countMessages(2));
+    }
+
+    @Test
+    public void pruneByRowsNeverSplitsHistories() {
+        for (int rowId = 1; rowId <= 100; rowId++) {
+            for (int edit = 0; edit < 3; edit++) {
+                history.insertMessage(rowId, "text " + edit, edit * 1000L);
+            }
+        }
+
+        history.prune(0, 50);
+
+        var db = history.getWritableDatabase();
+        // 50 rows end in the middle of a history, which is kept whole
+        assertEquals(51, DatabaseUtils.queryNumEntries(db, "MessageHistory"));
+        assertEquals(0, DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM (SELECT row_id FROM MessageHistory GROUP BY row_id HAVING COUNT(*) != 3)", null));
+        assertEquals(0, history.countMessages(83));
+        assertEquals(3, history.countMessages(84));
+    }
+
+    @Test
+    public void capRowsKeepsNewestRows() {
+        for (int i = 0; i < 10; i++) {
+            history.insertHideSeenMessage("jid", "msg" + i, MessageHistory.MessageType.MESSAGE_TYPE, false);
+        }
+        var db = history.getWritableDatabase();
+
+        assertEquals(6, DatabaseRetention.capRows(db, "hide_seen_messages", 4));
+        assertEquals(0, DatabaseRetention.capRows(db, "hide_seen_messages", 4));
+        assertEquals(4, DatabaseUtils.queryNumEntries(db, "hide_seen_messages", "message_id >= 'msg6'"));
+    }
+
+    @Test
+    public void pruneLargeTableAndReclaimSpace() {
+        var db = history.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < 100_000; i++) {
+                history.insertMessage(i / 2, "some edited text " + i, i);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        var start = SystemClock.elapsedRealtime();
+        var deleted = history.prune(0, 10_000);
+        var reclaimed = DatabaseRetention.compact(db);
+        var elapsed = SystemClock.elapsedRealtime() - start;
+
+        assertEquals(90_000, deleted);
+        assertTrue("nothing reclaimed", reclaimed > 0);
+        assertEquals(0, DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null));
+        assertTrue("prune and compact took " + elapsed + " ms", elapsed < 10_000);
+    }
+
+    @Test
+    public void compactConvertsOnlyMostlyFreeDatabases() {
+        try (var db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(PLAIN_DB), null)) {
+            db.execSQL("CREATE TABLE items(_id INTEGER PRIMARY KEY AUTOINCREMENT, data TEXT)");
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < 5000; i++) {
+                    db.execSQL("INSERT INTO items(data) VALUES (?)", new Object[]{"row " + i + " padded with some text to fill pages"});
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            db.execSQL("DELETE FROM items WHERE _id <= 100");
+            DatabaseRetention.compact(db);
+            assertEquals(0, DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null));
+
+            db.execSQL("DELETE FROM items WHERE _id <= 4000");
+            assertTrue(DatabaseRetention.compact(db) > 0);
+            assertEquals(2, DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.wmods.wppenhacer.xposed.core.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class MessageHistoryMigrationTest {
+
+    private static final String DB_NAME = "MessageHistory.db";
+
+    private Context context;
+    private MessageHistory history;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        if (history != null) history.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void upgradesVersion2Database() {
+        try (var db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(DB_NAME), null)) {
+            // schema as shipped with version 2
+            db.execSQL("create table MessageHistory(_id INTEGER PRIMARY KEY AUTOINCREMENT, row_id INTEGER NOT NULL, text_data TEXT NOT NULL, editTimestamp BIGINT DEFAULT 0 );");
+            db.execSQL("create table hide_seen_messages(_id INTEGER PRIMARY KEY AUTOINCREMENT, jid TEXT NOT NULL, message_id TEXT NOT NULL,type INT NOT NULL, viewed INT DEFAULT 0);");
+            insertHistory(db, 1, "original text", 0);
+            insertHistory(db, 1, "edited text", 1000);
+            insertSeen(db, "123@s.whatsapp.net", "ABC", 0);
+            insertSeen(db, "123@s.whatsapp.net", "ABC", 1);
+            db.setVersion(2);
+        }
+
+        history = MessageHistory.open(context);
+        var db = history.getWritableDatabase();
+        assertEquals(4, db.getVersion());
+
+        // duplicates collapse to the newest row before the unique index is created
+        var seen = history.getHideSeenMessage("123@s.whatsapp.net", "ABC", MessageHistory.MessageType.MESSAGE_TYPE);
+        assertTrue(seen.viewed);
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, "hide_seen_messages"));
+
+        history.insertHideSeenMessage("123@s.whatsapp.net", "ABC", MessageHistory.MessageType.MESSAGE_TYPE, false);
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, "hide_seen_messages"));
+
+        assertTrue(queryPlan(db, "SELECT viewed FROM hide_seen_messages WHERE jid=? AND message_id=? AND type=?", "1", "2", "0").contains("idx_hide_seen_messages_key"));
+        assertTrue(queryPlan(db, "SELECT text_data FROM MessageHistory WHERE row_id=?", "1").contains("idx_message_history_row_id"));
+
+        // rows written before the upgrade are found by the rebuilt search index
+        var hits = history.search(MessageSearch.toMatchQuery("edited"), null, 0, 0, 10);
+        assertEquals(1, hits.size());
+        assertEquals(1, hits.get(0).rowId);
+        assertEquals(2, history.countMessages(1));
+    }
+
+    @Test
+    public void lookupStaysIndexedOnLargeTables() {
+        history = MessageHistory.open(context);
+        var db = history.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < 100_000; i++) {
+                insertSeen(db, "jid" + (i % 500), "msg" + i, 0);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        var start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            history.getHideSeenMessage("jid" + (i % 500), "msg" + (i * 97), MessageHistory.MessageType.MESSAGE_TYPE);
+        }
+        var perLookupUs = (System.nanoTime() - start) / 1000 / 1000;
+        // an unindexed scan of 100k rows takes milliseconds per lookup
+        assertTrue("lookup took " + perLookupUs + " us", perLookupUs < 1000);
+    }
+
+    private static void insertHistory(SQLiteDatabase db, long rowId, String text, long timestamp) {
+        var values = new ContentValues();
+        values.put("row_id", rowId);
+        values.put("text_data", text);
+        values.put("editTimestamp", timestamp);
+        db.insert("MessageHistory", null, values);
+    }
+
+    private static void insertSeen(SQLiteDatabase db, String jid, String messageId, int viewed) {
+        var values = new ContentValues();
+        values.put("jid", jid);
+        values.put("message_id", messageId);
+        values.put("type", 0);
+        values.put("viewed", viewed);
+        db.insert("hide_seen_messages", null, values);
+    }
+
+    private static String queryPlan(SQLiteDatabase db, String sql, String... args) {
+        var plan = new StringBuilder();
+        try (Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args)) {
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(cursor.getColumnIndexOrThrow("detail"))).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package com.wmods.wppenhacer.xposed.core.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class MessageSearchTest {
+
+    private static final String DB_NAME = "delmessages.db";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        DelMessageStore.getInstance(context).close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        DelMessageStore.getInstance(context).close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void upgradesVersion4DatabaseAndIndexesNewRows() {
+        try (var db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(DB_NAME), null)) {
+            // schema as shipped with version 4
+            db.execSQL("CREATE TABLE IF NOT EXISTS delmessages (_id INTEGER PRIMARY KEY AUTOINCREMENT, jid TEXT, msgid TEXT, timestamp INTEGER DEFAULT 0, UNIQUE(jid, msgid))");
+            db.execSQL("INSERT INTO delmessages(jid, msgid, timestamp) VALUES ('111', 'OLD', 10)");
+            db.setVersion(4);
+        }
+
+        var store = DelMessageStore.getInstance(context);
+        assertEquals(5, store.getWritableDatabase().getVersion());
+        assertEquals(10, store.getTimestampByMessageId("OLD"));
+
+        store.insertMessage("111", "A", 100, "meet at the station");
+        store.insertMessage("222", "B", 200, "station closed today");
+        store.insertMessage("111", "C", 300, "never mind");
+
+        var hits = store.search(MessageSearch.toMatchQuery("stat"), null, 0, 0, 10);
+        assertEquals(2, hits.size());
+        // newest first
+        assertEquals("B", hits.get(0).messageId);
+        assertEquals("A", hits.get(1).messageId);
+
+        assertEquals(1, store.search(MessageSearch.toMatchQuery("station"), "111", 0, 0, 10).size());
+        assertEquals(1, store.search(MessageSearch.toMatchQuery("station"), null, 150, 250, 10).size());
+        // FTS operators typed by the user are matched literally
+        assertEquals(0, store.search(MessageSearch.toMatchQuery("station OR never"), null, 0, 0, 10).size());
+    }
+
+    @Test
+    public void searchStaysFastOn100kMessages() {
+        var store = DelMessageStore.getInstance(context);
+        var db = store.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < 100_000; i++) {
+                store.insertMessage("jid" + (i % 200), "msg" + i, i, "message number " + i + (i % 1000 == 0 ? " needle" : " hay"));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        var start = SystemClock.elapsedRealtime();
+        var hits = store.search(MessageSearch.toMatchQuery("needle"), null, 0, 0, 200);
+        var elapsed = SystemClock.elapsedRealtime() - start;
+
+        assertEquals(100, hits.size());
+        assertTrue("search took " + elapsed + " ms", elapsed < 50);
+    }
+}
@@ -0,0 +1,77 @@
+package com.wmods.wppenhacer.xposed.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+// CancellationSignal is a framework class, so cancellation is checked on a device
+@RunWith(AndroidJUnit4.class)
+public class FileCopyCancellationTest {
+
+    private static final int SIZE = 24 * 1024 * 1024;
+
+    private File source;
+    private File target;
+
+    @Before
+    public void setUp() throws IOException {
+        var dir = ApplicationProvider.getApplicationContext().getCacheDir();
+        source = new File(dir, "copy-source.bin");
+        target = new File(dir, "copy-target.bin");
+        var data = new byte[SIZE];
+        new Random(SIZE).nextBytes(data);
+        Files.write(source.toPath(), data);
+    }
+
+    @After
+    public void tearDown() {
+        source.delete();
+        target.delete();
+    }
+
+    @Test
+    public void stopsBetweenTransferChunks() throws IOException {
+        var cancellation = new CancellationSignal();
+        try (var in = new FileInputStream(source); var out = new FileOutputStream(target)) {
+            assertThrows(OperationCanceledException.class, () -> FileCopyUtils.copy(in, out, (copied, total) -> cancellation.cancel(), cancellation));
+        }
+        // cancelled after the first 8 MB chunk
+        assertEquals(8 * 1024 * 1024, target.length());
+    }
+
+    @Test
+    public void stopsBetweenBufferedReads() throws IOException {
+        var cancellation = new CancellationSignal();
+        try (var in = new BufferedInputStream(new FileInputStream(source)); var out = new FileOutputStream(target)) {
+            assertThrows(OperationCanceledException.class, () -> FileCopyUtils.copy(in, out, (copied, total) -> cancellation.cancel(), cancellation));
+        }
+        assertEquals(8 * 1024 * 1024, target.length());
+    }
+
+    @Test
+    public void copiesEverythingWhenNotCancelled() throws IOException {
+        try (var in = new FileInputStream(source); var out = new FileOutputStream(target)) {
+            assertEquals(SIZE, FileCopyUtils.copy(in, out, null, new CancellationSignal()));
+        }
+        assertArrayEquals(Files.readAllBytes(source.toPath()), Files.readAllBytes(target.toPath()));
+    }
+}
@@ -2,9 +2,13 @@ package com.wmods.wppenhacer.adapter;
 
 import android.content.Context;
 import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
@@ -14,26 +18,74 @@ import com.wmods.wppenhacer.xposed.utils.DesignUtils;
 import com.wmods.wppenhacer.xposed.utils.ResId;
 import com.wmods.wppenhacer.xposed.utils.Utils;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+
+/**
+ * Edit history of a single message, read from {@link MessageHistory} in windows of
+ * {@link #PAGE_SIZE} rows. Only the last few windows are kept in memory. Windows are loaded on the
+ * shared executor, rows of a window that is still loading are bound empty and refreshed once it
+ * arrives.
+ */
+public class MessageAdapter extends BaseAdapter {
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_PAGES = 4;
+    private static final int PREFETCH_DISTANCE = 10;
 
-public class MessageAdapter extends ArrayAdapter<MessageHistory.MessageItem> {
     private final Context context;
-    private final List<MessageHistory.MessageItem> items;
+    private final long rowId;
+    private final int count;
+    private final LruCache<Integer, List<MessageHistory.MessageItem>> pages = new LruCache<>(MAX_PAGES);
+    private final Set<Integer> loading = new HashSet<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
-    public MessageAdapter(Context context, List<MessageHistory.MessageItem> items) {
-        super(context, android.R.layout.simple_list_item_2, android.R.id.text1, items);
+    public MessageAdapter(Context context, long rowId, int count) {
         this.context = context;
-        this.items = items;
+        this.rowId = rowId;
+        this.count = count;
     }
 
     @Override
     public int getCount() {
-        return items.size();
+        return count;
     }
 
+    /**
+     * @return the item or null while its window is being loaded
+     */
     @Override
     public MessageHistory.MessageItem getItem(int position) {
-        return items.get(position);
+        int page = position / PAGE_SIZE;
+        int index = position % PAGE_SIZE;
+        if (index >= PAGE_SIZE - PREFETCH_DISTANCE && (page + 1) * PAGE_SIZE < count) {
+            loadPage(page + 1);
+        }
+        var items = pages.get(page);
+        if (items == null) {
+            loadPage(page);
+            return null;
+        }
+        return index < items.size() ? items.get(index) : null;
+    }
+
+    private void loadPage(int page) {
+        if (pages.get(page) != null || !loading.add(page)) return;
+        Utils.getExecutor().execute(() -> {
+            List<MessageHistory.MessageItem> items;
+            try {
+                items = MessageHistory.getInstance().getMessagesPage(rowId, page * PAGE_SIZE, PAGE_SIZE);
+            } catch (Exception e) {
+                items = null;
+            }
+            var result = items;
+            mainHandler.post(() -> {
+                loading.remove(page);
+                if (result == null) return;
+                pages.put(page, result);
+                notifyDataSetChanged();
+            });
+        });
     }
 
     @Override
@@ -44,19 +96,39 @@ public class MessageAdapter extends ArrayAdapter<MessageHistory.MessageItem> {
     @NonNull
     @Override
     public View getView(int position, View convertView, @NonNull ViewGroup parent) {
-        View view1 = super.getView(position, convertView, parent);
-        TextView textView0 = view1.findViewById(android.R.id.text1);
-        textView0.setTextSize(14.0f);
-        textView0.setTextColor(DesignUtils.getPrimaryTextColor());
-        textView0.setText(this.items.get(position).message);
-        TextView textView1 = view1.findViewById(android.R.id.text2);
-        textView1.setTextSize(12.0f);
-        textView1.setAlpha(0.75f);
-        textView1.setTypeface(null, Typeface.ITALIC);
-        textView1.setTextColor(DesignUtils.getPrimaryTextColor());
-        var timestamp = this.items.get(position).timestamp;
-        textView1.setText((timestamp == 0L ? context.getString(ResId.string.message_original) : "✏️ " + Utils.getDateTimeFromMillis(timestamp)));
-        return view1;
+        ViewHolder holder;
+        if (convertView == null) {
+            convertView = LayoutInflater.from(context).inflate(android.R.layout.simple_list_item_2, parent, false);
+            holder = new ViewHolder(convertView);
+            convertView.setTag(holder);
+        } else {
+            holder = (ViewHolder) convertView.getTag();
+        }
+        var item = getItem(position);
+        if (item == null) {
+            holder.message.setText(null);
+            holder.timestamp.setText(null);
+            return convertView;
+        }
+        holder.message.setText(item.message);
+        holder.timestamp.setText((item.timestamp == 0L ? context.getString(ResId.string.message_original) : "✏️ " + Utils.getDateTimeFromMillis(item.timestamp)));
+        return convertView;
+    }
+
+    private static class ViewHolder {
+        final TextView message;
+        final TextView timestamp;
+
+        ViewHolder(View view) {
+            message = view.findViewById(android.R.id.text1);
+            message.setTextSize(14.0f);
+            message.setTextColor(DesignUtils.getPrimaryTextColor());
+            timestamp = view.findViewById(android.R.id.text2);
+            timestamp.setTextSize(12.0f);
+            timestamp.setAlpha(0.75f);
+            timestamp.setTypeface(null, Typeface.ITALIC);
+            timestamp.setTextColor(DesignUtils.getPrimaryTextColor());
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -47,7 +47,7 @@ public class WallpaperView extends FrameLayout {
             if (prefs.getBoolean("wallpaper", false)) {
                 image = prefs.getString("wallpaper_file", "");
             }
-            Drawable drawable = getDrawableImage(image);
+            Drawable drawable = getDrawableImage(image, bgView);
             bgView.setImageDrawable(drawable);
             addView(bgView);
         } catch (Exception e) {
@@ -55,7 +55,12 @@ public class WallpaperView extends FrameLayout {
         }
     }
 
-    private Drawable getDrawableImage(String imagePath) throws Exception {
+    /**
+     * Returns null when the image can only be read through the bridge and it is not connected yet.
+     * The view is created on the main thread, which must not wait for the bridge, so the image is
+     * set on {@code bgView} once the connection completes.
+     */
+    private Drawable getDrawableImage(String imagePath, ImageView bgView) throws Exception {
         var fileOut = getContext().getFilesDir().getAbsolutePath() + "/" + "wallpaper.jpg";
         var file = new File(imagePath);
         if (!file.exists()) return null;
@@ -75,8 +80,22 @@ public class WallpaperView extends FrameLayout {
 
         Bitmap bitmap;
         if (!file.canRead()) {
-            var parcelFile = WppCore.getClientBridge().openFile(filePath, false);
-            bitmap = BitmapFactory.decodeStream(new FileInputStream(parcelFile.getFileDescriptor()));
+            if (!WppCore.isBridgeAlive()) {
+                WppCore.connectBridge().thenAccept(service -> {
+                    if (service == null) return;
+                    bgView.post(() -> {
+                        try {
+                            bgView.setImageDrawable(getDrawableImage(imagePath, bgView));
+                        } catch (Exception e) {
+                            log("Error loading wallpaper: " + e.getMessage());
+                        }
+                    });
+                });
+                return null;
+            }
+            try (var parcelFile = WppCore.getClientBridge().openFile(filePath, false)) {
+                bitmap = BitmapFactory.decodeStream(new FileInputStream(parcelFile.getFileDescriptor()));
+            }
         } else {
             bitmap = BitmapFactory.decodeFile(file.getAbsolutePath());
         }
@@ -0,0 +1,61 @@
+package com.wmods.wppenhacer.xposed.bridge;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Compact file metadata returned by the bridge instead of full {@link java.io.File} objects.
+ */
+public final class FileStat implements Parcelable {
+
+    public static final int FLAG_EXISTS = 1;
+    public static final int FLAG_DIRECTORY = 1 << 1;
+
+    public static final Creator<FileStat> CREATOR = new Creator<>() {
+        @Override
+        public FileStat createFromParcel(Parcel in) {
+            return new FileStat(in.readString(), in.readLong(), in.readLong(), in.readInt());
+        }
+
+        @Override
+        public FileStat[] newArray(int size) {
+            return new FileStat[size];
+        }
+    };
+
+    @NonNull
+    public final String name;
+    public final long size;
+    public final long lastModified;
+    public final int flags;
+
+    public FileStat(@NonNull String name, long size, long lastModified, int flags) {
+        this.name = name;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.flags = flags;
+    }
+
+    public boolean exists() {
+        return (flags & FLAG_EXISTS) != 0;
+    }
+
+    public boolean isDirectory() {
+        return (flags & FLAG_DIRECTORY) != 0;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeString(name);
+        dest.writeLong(size);
+        dest.writeLong(lastModified);
+        dest.writeInt(this.flags);
+    }
+}
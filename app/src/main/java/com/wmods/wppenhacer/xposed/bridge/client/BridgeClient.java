@@ -112,7 +112,7 @@ public class BridgeClient extends BaseClient implements ServiceConnection {
     public void tryReconnect() {
         reconnectSemaphore.acquireUninterruptibly();
         try {
-            if (service.asBinder().pingBinder()) return;
+            if (service != null && service.asBinder().pingBinder()) return;
             connect().thenAccept(canLoad -> {
                 if (!Boolean.TRUE.equals(canLoad)) {
                     Log.e("BridgeClient", "failed to reconnect to service, result=" + canLoad);
@@ -0,0 +1,36 @@
+package com.wmods.wppenhacer.xposed.bridge.service;
+
+import androidx.annotation.NonNull;
+
+import com.wmods.wppenhacer.xposed.bridge.FileStat;
+
+import java.io.InputStream;
+
+/**
+ * File work performed on behalf of the hooked app. {@link HookBinder} only converts binder types
+ * and delegates here, so the batch logic does not depend on a live binder.
+ */
+public interface FileOperations {
+
+    @NonNull
+    FileStat stat(@NonNull String path);
+
+    /**
+     * @return the children of {@code path}, empty when it is not a readable folder
+     */
+    @NonNull
+    FileStat[] list(@NonNull String path);
+
+    boolean mkdirs(@NonNull String path);
+
+    /**
+     * Writes {@code source} to {@code destPath}, replacing any existing file.
+     */
+    boolean copy(@NonNull InputStream source, @NonNull String destPath);
+
+    /**
+     * Moves {@code sourcePath} to {@code destPath}, replacing any existing file.
+     */
+    boolean move(@NonNull String sourcePath, @NonNull String destPath);
+
+}
@@ -3,21 +3,28 @@ package com.wmods.wppenhacer.xposed.bridge.service;
 import android.os.ParcelFileDescriptor;
 import android.os.RemoteException;
 
+import com.wmods.wppenhacer.xposed.bridge.FileStat;
 import com.wmods.wppenhacer.xposed.bridge.WaeIIFace;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Function;
 
 public class HookBinder extends WaeIIFace.Stub {
 
     private static HookBinder mInstance;
+    private final FileOperations operations;
+
+    public HookBinder(FileOperations operations) {
+        this.operations = operations;
+    }
 
     public static HookBinder getInstance() {
         if (mInstance == null) {
-            mInstance = new HookBinder();
+            mInstance = new HookBinder(new LocalFileOperations());
         }
         return mInstance;
     }
@@ -40,19 +47,73 @@ public class HookBinder extends WaeIIFace.Stub {
     }
 
     @Override
-    public boolean createDir(String path) throws RemoteException {
-        File file = new File(path);
-        return file.mkdirs();
+    public FileStat[] statFiles(String[] paths) throws RemoteException {
+        var result = new FileStat[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            result[i] = operations.stat(paths[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public FileStat[] listFilesWithMetadata(String path) throws RemoteException {
+        return operations.list(path);
     }
 
     @Override
-    public List listFiles(String path) throws RemoteException {
-        var files = new File(path).listFiles();
-        if (files == null) {
-            return Collections.emptyList();
+    public boolean[] createDirs(String[] paths) throws RemoteException {
+        var result = new boolean[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            result[i] = operations.mkdirs(paths[i]);
         }
-        return Arrays.asList(files);
+        return result;
+    }
+
+    @Override
+    public boolean[] copyFiles(ParcelFileDescriptor[] sources, String[] destPaths) throws RemoteException {
+        return copyAll(sources, destPaths, ParcelFileDescriptor.AutoCloseInputStream::new, operations);
     }
 
+    @Override
+    public boolean[] moveFiles(String[] sourcePaths, String[] destPaths) throws RemoteException {
+        if (sourcePaths.length != destPaths.length) throw new IllegalArgumentException("sourcePaths and destPaths differ in length");
+        var result = new boolean[sourcePaths.length];
+        for (int i = 0; i < sourcePaths.length; i++) {
+            result[i] = operations.move(sourcePaths[i], destPaths[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Copies every non-null source through {@code open}, whose stream closes the source. Sources
+     * that were not handed to a stream are closed here, also when the lengths differ or a copy
+     * throws. Generic over the descriptor type so it runs on the JVM with fake descriptors.
+     */
+    static <T extends Closeable> boolean[] copyAll(T[] sources, String[] destPaths, Function<T, InputStream> open, FileOperations operations) {
+        try {
+            if (sources.length != destPaths.length) throw new IllegalArgumentException("sources and destPaths differ in length");
+            var result = new boolean[sources.length];
+            for (int i = 0; i < sources.length; i++) {
+                var source = sources[i];
+                if (source == null) continue;
+                // the stream owns the descriptor from here on, and is closed even if the copy throws
+                sources[i] = null;
+                try (var in = open.apply(source)) {
+                    result[i] = operations.copy(in, destPaths[i]);
+                } catch (IOException ignored) {
+                    // only closing failed, result[i] already tells whether the copy went through
+                }
+            }
+            return result;
+        } finally {
+            for (var source : sources) {
+                if (source == null) continue;
+                try {
+                    source.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
 
 }
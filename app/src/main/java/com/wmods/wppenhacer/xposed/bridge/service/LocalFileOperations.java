@@ -0,0 +1,83 @@
+package com.wmods.wppenhacer.xposed.bridge.service;
+
+import androidx.annotation.NonNull;
+
+import com.wmods.wppenhacer.xposed.bridge.FileStat;
+import com.wmods.wppenhacer.xposed.utils.FileCopyUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+public class LocalFileOperations implements FileOperations {
+
+    private static final FileStat[] EMPTY = new FileStat[0];
+
+    @NonNull
+    @Override
+    public FileStat stat(@NonNull String path) {
+        return stat(new File(path));
+    }
+
+    @NonNull
+    @Override
+    public FileStat[] list(@NonNull String path) {
+        var files = new File(path).listFiles();
+        if (files == null) return EMPTY;
+        var result = new FileStat[files.length];
+        for (int i = 0; i < files.length; i++) {
+            result[i] = stat(files[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean mkdirs(@NonNull String path) {
+        var file = new File(path);
+        return file.isDirectory() || file.mkdirs();
+    }
+
+    @Override
+    public boolean copy(@NonNull InputStream source, @NonNull String destPath) {
+        var dest = new File(destPath);
+        try (source) {
+            var parent = dest.getParentFile();
+            if (parent != null && !mkdirs(parent.getAbsolutePath())) return false;
+            try (var out = new FileOutputStream(dest)) {
+                FileCopyUtils.copy(source, out);
+            } catch (IOException | RuntimeException e) {
+                // do not leave a partial file behind
+                dest.delete();
+                throw e;
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean move(@NonNull String sourcePath, @NonNull String destPath) {
+        var dest = new File(destPath);
+        try {
+            var parent = dest.getParentFile();
+            if (parent != null && !mkdirs(parent.getAbsolutePath())) return false;
+            // Files.move falls back to copy and delete when the paths are on different volumes
+            Files.move(new File(sourcePath).toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @NonNull
+    private static FileStat stat(@NonNull File file) {
+        if (!file.exists()) return new FileStat(file.getName(), 0, 0, 0);
+        var directory = file.isDirectory();
+        var flags = FileStat.FLAG_EXISTS | (directory ? FileStat.FLAG_DIRECTORY : 0);
+        return new FileStat(file.getName(), directory ? 0 : file.length(), file.lastModified(), flags);
+    }
+}
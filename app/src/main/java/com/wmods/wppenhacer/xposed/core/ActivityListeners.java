@@ -0,0 +1,115 @@
+package com.wmods.wppenhacer.xposed.core;
+
+import android.app.Activity;
+
+import androidx.annotation.NonNull;
+
+import com.wmods.wppenhacer.xposed.core.WppCore.ActivityChangeState;
+import com.wmods.wppenhacer.xposed.core.WppCore.ActivityChangeState.ChangeType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Activity lifecycle subscriptions, keyed by activity class and event.
+ * <p>
+ * Registrations are kept in a copy-on-write array. Dispatch resolves the listeners for a
+ * concrete activity class once, as one array per {@link ChangeType}, and caches the result until
+ * the next registration, so a lifecycle event only costs a map lookup and a loop over the
+ * listeners that actually asked for it.
+ */
+final class ActivityListeners {
+
+    private static final ChangeType[] TYPES = ChangeType.values();
+    private static final ActivityChangeState[] NONE = new ActivityChangeState[0];
+
+    private static final Object lock = new Object();
+    private static volatile Registration[] registrations = new Registration[0];
+    private static volatile ConcurrentHashMap<Class<?>, ActivityChangeState[][]> table = new ConcurrentHashMap<>();
+
+    private ActivityListeners() {
+    }
+
+    static void add(@NonNull Class<?> activityClass, @NonNull EnumSet<ChangeType> types, @NonNull ActivityChangeState listener) {
+        synchronized (lock) {
+            var merged = EnumSet.copyOf(types);
+            Registration[] next = null;
+            for (int i = 0; i < registrations.length; i++) {
+                var registration = registrations[i];
+                if (registration.listener == listener && registration.activityClass == activityClass) {
+                    merged.addAll(registration.types);
+                    next = registrations.clone();
+                    next[i] = new Registration(activityClass, merged, listener);
+                    break;
+                }
+            }
+            if (next == null) {
+                next = Arrays.copyOf(registrations, registrations.length + 1);
+                next[registrations.length] = new Registration(activityClass, merged, listener);
+            }
+            registrations = next;
+            // readers load the table before the registrations, so a stale row can only land in the old map
+            table = new ConcurrentHashMap<>();
+        }
+    }
+
+    static void remove(@NonNull ActivityChangeState listener) {
+        synchronized (lock) {
+            var next = new ArrayList<Registration>(registrations.length);
+            for (var registration : registrations) {
+                if (registration.listener != listener) next.add(registration);
+            }
+            if (next.size() == registrations.length) return;
+            registrations = next.toArray(new Registration[0]);
+            table = new ConcurrentHashMap<>();
+        }
+    }
+
+    static void dispatch(@NonNull Activity activity, @NonNull ChangeType type) {
+        var current = table;
+        var cls = activity.getClass();
+        var row = current.get(cls);
+        if (row == null) {
+            row = resolve(cls, registrations);
+            current.put(cls, row);
+        }
+        for (var listener : row[type.ordinal()]) {
+            try {
+                listener.onChange(activity, type);
+            } catch (Throwable t) {
+                XposedBridge.log(t);
+            }
+        }
+    }
+
+    private static ActivityChangeState[][] resolve(Class<?> cls, Registration[] snapshot) {
+        var row = new ActivityChangeState[TYPES.length][];
+        for (var type : TYPES) {
+            var matches = new ArrayList<ActivityChangeState>();
+            for (var registration : snapshot) {
+                if (registration.types.contains(type) && registration.activityClass.isAssignableFrom(cls)
+                        && !matches.contains(registration.listener)) {
+                    matches.add(registration.listener);
+                }
+            }
+            row[type.ordinal()] = matches.isEmpty() ? NONE : matches.toArray(NONE);
+        }
+        return row;
+    }
+
+    private static final class Registration {
+        final Class<?> activityClass;
+        final EnumSet<ChangeType> types;
+        final ActivityChangeState listener;
+
+        Registration(Class<?> activityClass, EnumSet<ChangeType> types, ActivityChangeState listener) {
+            this.activityClass = activityClass;
+            this.types = types;
+            this.listener = listener;
+        }
+    }
+}
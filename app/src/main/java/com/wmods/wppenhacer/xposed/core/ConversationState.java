@@ -0,0 +1,165 @@
+package com.wmods.wppenhacer.xposed.core;
+
+import android.app.Activity;
+import android.content.Intent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import de.robv.android.xposed.XC_MethodHook;
+import de.robv.android.xposed.XposedBridge;
+import de.robv.android.xposed.XposedHelpers;
+
+/**
+ * Tracks the conversation currently on screen.
+ * <p>
+ * The state is captured from the activity lifecycle callbacks and published as an immutable
+ * {@link Snapshot}, so readers on hook threads only pay for a volatile read. Class resolution
+ * happens once in {@link #initialize(ClassLoader)} and the chat JID is resolved when the
+ * conversation is started or resumed. A chat swapped via onNewIntent gets a fresh snapshot right
+ * away, so the previous JID is never served in between. Listeners are only told about resumed
+ * conversations, once their fields are populated.
+ */
+public final class ConversationState {
+
+    private static final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static volatile Snapshot current = Snapshot.EMPTY;
+    // only touched from lifecycle callbacks on the main thread
+    private static Snapshot notified = Snapshot.EMPTY;
+    private static Class<?> conversationClass;
+    private static Class<?> homeClass;
+
+    private ConversationState() {
+    }
+
+    static void initialize(@NonNull ClassLoader loader) {
+        conversationClass = XposedHelpers.findClass("com.whatsapp.Conversation", loader);
+        try {
+            homeClass = WppCore.getHomeActivityClass(loader);
+        } catch (Throwable t) {
+            XposedBridge.log(t);
+        }
+        hookNewIntent();
+    }
+
+    /**
+     * Hooks the most derived onNewIntent of Conversation, which may not call through to super.
+     */
+    private static void hookNewIntent() {
+        for (Class<?> clazz = conversationClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            try {
+                var method = clazz.getDeclaredMethod("onNewIntent", Intent.class);
+                XposedBridge.hookMethod(method, new XC_MethodHook() {
+                    @Override
+                    protected void afterHookedMethod(MethodHookParam param) {
+                        var snapshot = current;
+                        if (snapshot.activity == param.thisObject) {
+                            // drop the memoized JID, the resume that follows resolves and notifies
+                            current = new Snapshot(snapshot.activity, snapshot.tablet);
+                        }
+                    }
+                });
+                return;
+            } catch (NoSuchMethodException ignored) {
+            }
+        }
+    }
+
+    @NonNull
+    public static Snapshot get() {
+        return current;
+    }
+
+    public static void addListener(@NonNull Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    static void onActivityState(@NonNull Activity activity, WppCore.ActivityChangeState.ChangeType type) {
+        if (conversationClass == null) return;
+        switch (type) {
+            case CREATED, STARTED, RESUMED -> {
+                Snapshot next;
+                if (conversationClass.isInstance(activity)) {
+                    next = new Snapshot(activity, false);
+                } else if (homeClass != null && homeClass.isInstance(activity)
+                        && activity.getResources().getConfiguration().smallestScreenWidthDp >= 600) {
+                    // for tablet UI, they're using HomeActivity instead of Conversation
+                    next = new Snapshot(activity, true);
+                } else {
+                    next = Snapshot.EMPTY;
+                }
+                // the chat fields are only populated once onCreate has finished
+                if (type != WppCore.ActivityChangeState.ChangeType.CREATED) next.getRawJid();
+                publish(next, type == WppCore.ActivityChangeState.ChangeType.RESUMED);
+            }
+            default -> {
+            }
+        }
+    }
+
+    static void onActivityDestroyed(@NonNull Activity activity) {
+        if (current.activity == activity) publish(Snapshot.EMPTY, true);
+    }
+
+    private static void publish(@NonNull Snapshot next, boolean notify) {
+        current = next;
+        if (!notify) return;
+        var previous = notified;
+        if (previous.activity == next.activity && Objects.equals(previous.rawJid, next.rawJid)) return;
+        notified = next;
+        for (var listener : listeners) {
+            try {
+                listener.onConversationChanged(next);
+            } catch (Throwable t) {
+                XposedBridge.log(t);
+            }
+        }
+    }
+
+    public interface Listener {
+        /**
+         * Called on the main thread when a different conversation, or none, is resumed.
+         */
+        void onConversationChanged(@NonNull Snapshot snapshot);
+    }
+
+    public static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(null, false);
+
+        @Nullable
+        public final Activity activity;
+        /**
+         * Tablet layouts host the chat as a fragment of HomeActivity, so the open chat can change
+         * without any lifecycle callback and its JID is never memoized.
+         */
+        public final boolean tablet;
+        private volatile String rawJid;
+
+        private Snapshot(@Nullable Activity activity, boolean tablet) {
+            this.activity = activity;
+            this.tablet = tablet;
+        }
+
+        public boolean isEmpty() {
+            return activity == null;
+        }
+
+        @Nullable
+        public String getRawJid() {
+            if (activity == null) return null;
+            var jid = rawJid;
+            if (jid != null) return jid;
+            jid = WppCore.resolveConversationJid(activity, tablet);
+            if (!tablet) rawJid = jid;
+            return jid;
+        }
+    }
+}
@@ -1,11 +1,23 @@
 package com.wmods.wppenhacer.xposed.core;
 
+import android.app.Activity;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XSharedPreferences;
 import de.robv.android.xposed.XposedBridge;
 
@@ -17,6 +29,14 @@ public abstract class Feature {
     public static boolean DEBUG = false;
     private static boolean sLSPatchOptimized = false;
 
+    // Live hooks installed through hookOnce/HookScope per member, used to spot hooks piling up
+    private static final int HOOK_LEAK_THRESHOLD = 8;
+    private static final Map<Member, AtomicInteger> liveHooks = new ConcurrentHashMap<>();
+    private static final Set<Member> reportedLeaks = ConcurrentHashMap.newKeySet();
+    private final Map<String, XC_MethodHook.Unhook> onceHooks = new ConcurrentHashMap<>();
+    private final Map<Activity, HookScope> activityScopes = Collections.synchronizedMap(new WeakHashMap<>());
+    private boolean activityScopesRegistered;
+
     public Feature(@NonNull ClassLoader classLoader, @NonNull XSharedPreferences preferences) {
         this.classLoader = classLoader;
         this.prefs = preferences;
@@ -45,6 +65,91 @@ public abstract class Feature {
 
     public abstract void doHook() throws Throwable;
 
+    /**
+     * Hooks {@code member} unless this feature already hooked it with a callback of the same
+     * class, so code that runs repeatedly (e.g. on every setAdapter) installs the hook once.
+     */
+    protected XC_MethodHook.Unhook hookOnce(@NonNull Member member, @NonNull XC_MethodHook callback) {
+        var key = member + "#" + callback.getClass().getName();
+        return onceHooks.computeIfAbsent(key, k -> trackHook(member, XposedBridge.hookMethod(member, callback)));
+    }
+
+    /**
+     * Opens a scope whose hooks are removed by {@link HookScope#close()}, typically around one
+     * operation: open it in beforeHookedMethod and close it in afterHookedMethod.
+     */
+    protected HookScope openScope(@NonNull String name) {
+        return new HookScope(getPluginName() + ":" + name);
+    }
+
+    /**
+     * Returns this feature's scope for {@code activity}, opening it on first use. The scope is
+     * closed when the activity ends, so a hook installed once per screen does not outlive it.
+     */
+    protected HookScope openScope(@NonNull Activity activity) {
+        synchronized (activityScopes) {
+            if (!activityScopesRegistered) {
+                WppCore.addListenerActivity((act, type) -> {
+                    var scope = activityScopes.remove(act);
+                    if (scope != null) scope.close();
+                }, WppCore.ActivityChangeState.ChangeType.ENDED);
+                activityScopesRegistered = true;
+            }
+            var scope = activityScopes.get(activity);
+            if (scope == null) {
+                scope = new HookScope(getPluginName() + ":" + activity.getClass().getSimpleName());
+                activityScopes.put(activity, scope);
+            }
+            return scope;
+        }
+    }
+
+    private static XC_MethodHook.Unhook trackHook(Member member, XC_MethodHook.Unhook unhook) {
+        int count = liveHooks.computeIfAbsent(member, m -> new AtomicInteger()).incrementAndGet();
+        if (count > HOOK_LEAK_THRESHOLD && reportedLeaks.add(member)) {
+            XposedBridge.log("WARNING: " + count + " live hooks on " + member + ", hooks may be accumulating");
+        }
+        return unhook;
+    }
+
+    private static void untrackHook(XC_MethodHook.Unhook unhook) {
+        var count = liveHooks.get(unhook.getHookedMethod());
+        if (count != null) count.decrementAndGet();
+        unhook.unhook();
+    }
+
+    /**
+     * Hooks that live only as long as an operation or an Activity.
+     */
+    public static final class HookScope implements AutoCloseable {
+        private final String name;
+        private final List<XC_MethodHook.Unhook> unhooks = new ArrayList<>();
+        private boolean closed;
+
+        private HookScope(String name) {
+            this.name = name;
+        }
+
+        public synchronized XC_MethodHook.Unhook hook(@NonNull Member member, @NonNull XC_MethodHook callback) {
+            if (closed) throw new IllegalStateException("Hook scope " + name + " is closed");
+            var unhook = trackHook(member, XposedBridge.hookMethod(member, callback));
+            unhooks.add(unhook);
+            return unhook;
+        }
+
+        public synchronized boolean isEmpty() {
+            return unhooks.isEmpty();
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) return;
+            closed = true;
+            for (var unhook : unhooks) untrackHook(unhook);
+            unhooks.clear();
+        }
+    }
+
     @NonNull
     public abstract String getPluginName();
 
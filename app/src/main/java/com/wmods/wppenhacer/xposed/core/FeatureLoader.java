@@ -23,6 +23,8 @@ import com.wmods.wppenhacer.UpdateChecker;
 import com.wmods.wppenhacer.xposed.core.components.AlertDialogWpp;
 import com.wmods.wppenhacer.xposed.core.components.FMessageWpp;
 import com.wmods.wppenhacer.xposed.core.components.SharedPreferencesWrapper;
+import com.wmods.wppenhacer.xposed.core.db.DatabaseRetention;
+import com.wmods.wppenhacer.xposed.core.download.MediaSaver;
 import com.wmods.wppenhacer.xposed.core.devkit.Unobfuscator;
 import com.wmods.wppenhacer.xposed.core.devkit.UnobfuscatorCache;
 import com.wmods.wppenhacer.xposed.features.customization.BubbleColors;
@@ -211,7 +213,10 @@ public class FeatureLoader {
                 }
 
                 PackageManager packageManager = mApp.getPackageManager();
-                pref.registerOnSharedPreferenceChangeListener((sharedPreferences, s) -> pref.reload());
+                pref.registerOnSharedPreferenceChangeListener((sharedPreferences, s) -> {
+                    pref.reload();
+                    HookConfig.update(pref);
+                });
                 PackageInfo packageInfo = packageManager.getPackageInfo(mApp.getPackageName(), 0);
                 XposedBridge.log(packageInfo.versionName);
                 currentVersion = packageInfo.versionName;
@@ -297,20 +302,18 @@ public class FeatureLoader {
         AlertDialogWpp.initDialog(loader);
         FMessageWpp.initialize(loader);
         Utils.init(loader);
-        WppCore.addListenerActivity((activity, state) -> {
+        HookConfig.update(pref);
+        DatabaseRetention.init(pref);
+        MediaSaver.init();
+        WppCore.addListenerActivity((activity, state) -> checkUpdate(activity), WppCore.ActivityChangeState.ChangeType.RESUMED);
 
-            if (state == WppCore.ActivityChangeState.ChangeType.RESUMED) {
-                checkUpdate(activity);
-            }
-
-            // Check for WAE Update
+        // Check for WAE Update
+        WppCore.addListenerActivity(WppCore.getHomeActivityClass(loader), (activity, state) -> {
             //noinspection ConstantValue
             if (App.isOriginalPackage() && pref.getBoolean("update_check", true)) {
-                if (activity.getClass().getSimpleName().equals("HomeActivity") && state == WppCore.ActivityChangeState.ChangeType.CREATED) {
-                    CompletableFuture.runAsync(new UpdateChecker(activity));
-                }
+                CompletableFuture.runAsync(new UpdateChecker(activity));
             }
-        });
+        }, WppCore.ActivityChangeState.ChangeType.CREATED);
     }
 
 
@@ -639,6 +642,9 @@ public class FeatureLoader {
                 if (time != null)
                     XposedBridge.log(time);
             }
+            for (var shared : HookDispatcher.describeSharedMembers()) {
+                XposedBridge.log("* Shared hook " + shared);
+            }
         }
     }
 
@@ -0,0 +1,106 @@
+package com.wmods.wppenhacer.xposed.core;
+
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import com.wmods.wppenhacer.xposed.features.privacy.CallPrivacy;
+import com.wmods.wppenhacer.xposed.features.privacy.CustomPrivacy;
+import com.wmods.wppenhacer.xposed.utils.Utils;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Immutable snapshot of the options read inside hook bodies, parsed once from the preferences.
+ * A new snapshot replaces the current one whenever the preferences change, so hooks only read
+ * final fields of {@link #get()} instead of parsing strings per call.
+ */
+public final class HookConfig {
+
+    private static volatile HookConfig current;
+
+    public final int antiRevoke;
+    public final int antiRevokeStatus;
+    public final boolean toastDeleted;
+    public final boolean hideStatusView;
+    public final CallPrivacy.PrivacyType callPrivacy;
+    public final String callType;
+    public final Set<String> callBlockContacts;
+    public final Set<String> callWhiteContacts;
+    public final boolean customPrivacy;
+    /**
+     * Global CustomPrivacy flags that contact overrides are applied over, for chats and groups.
+     */
+    public final int privacyDefaults;
+    public final int groupPrivacyDefaults;
+
+    private HookConfig(SharedPreferences prefs) {
+        antiRevoke = parseInt(prefs.getString("antirevoke", "0"));
+        antiRevokeStatus = parseInt(prefs.getString("antirevokestatus", "0"));
+        toastDeleted = prefs.getBoolean("toastdeleted", false);
+        hideStatusView = prefs.getBoolean("hidestatusview", false);
+        callPrivacy = CallPrivacy.PrivacyType.getByValue(parseInt(prefs.getString("call_privacy", "0")));
+        callType = prefs.getString("call_type", "no_internet");
+        callBlockContacts = parseList(prefs.getString("call_block_contacts", "[]"));
+        callWhiteContacts = parseList(prefs.getString("call_white_contacts", "[]"));
+        customPrivacy = !"0".equals(prefs.getString("custom_privacy_type", "0"));
+        privacyDefaults = flag(prefs, "hideread", CustomPrivacy.HIDE_SEEN)
+                | flag(prefs, "hidestatusview", CustomPrivacy.HIDE_VIEW_STATUS)
+                | flag(prefs, "hidereceipt", CustomPrivacy.HIDE_RECEIPT)
+                | flag(prefs, "ghostmode_t", CustomPrivacy.HIDE_TYPING)
+                | flag(prefs, "ghostmode_r", CustomPrivacy.HIDE_RECORDING);
+        groupPrivacyDefaults = (privacyDefaults & ~CustomPrivacy.HIDE_SEEN) | flag(prefs, "hideread_group", CustomPrivacy.HIDE_SEEN);
+    }
+
+    @NonNull
+    public static HookConfig get() {
+        var config = current;
+        if (config == null) {
+            synchronized (HookConfig.class) {
+                if (current == null) current = new HookConfig(Utils.xprefs);
+                config = current;
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Builds a new snapshot from {@code prefs} and publishes it.
+     */
+    public static void update(SharedPreferences prefs) {
+        try {
+            current = new HookConfig(prefs);
+        } catch (Exception e) {
+            XposedBridge.log(e);
+        }
+    }
+
+    private static int flag(SharedPreferences prefs, String key, int flag) {
+        return prefs.getBoolean(key, false) ? flag : 0;
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Parses the "[a, b, c]" format used to store contact lists.
+     */
+    static Set<String> parseList(String value) {
+        if (value == null || value.length() < 2) return Collections.emptySet();
+        var set = new HashSet<String>();
+        for (var item : value.substring(1, value.length() - 1).split(",")) {
+            item = item.trim();
+            if (!item.isEmpty()) set.add(item);
+        }
+        return Collections.unmodifiableSet(set);
+    }
+}
@@ -0,0 +1,129 @@
+package com.wmods.wppenhacer.xposed.core;
+
+import androidx.annotation.NonNull;
+
+import java.lang.reflect.Member;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.robv.android.xposed.XC_MethodHook;
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Installs a single Xposed hook per member and fans each call out to the listeners registered by
+ * the features. Listeners run by priority (highest first before the call, last after it, like
+ * Xposed callbacks) and an exception in one of them is logged without affecting the others.
+ * <p>
+ * As with separate Xposed hooks, once a listener sets a result or throwable before the call the
+ * remaining before listeners are skipped, and only the listeners whose before ran get the after.
+ * The early return is seen through the public getters, so a listener that sets a null result
+ * still skips the call but lets the remaining before listeners run.
+ */
+public final class HookDispatcher {
+
+    public static final int PRIORITY_DEFAULT = XC_MethodHook.PRIORITY_DEFAULT;
+    private static final Map<Member, Dispatch> dispatches = new ConcurrentHashMap<>();
+
+    private HookDispatcher() {
+    }
+
+    public static void hook(@NonNull Member member, @NonNull Feature owner, @NonNull Listener listener) {
+        hook(member, owner, PRIORITY_DEFAULT, listener);
+    }
+
+    public static void hook(@NonNull Member member, @NonNull Feature owner, int priority, @NonNull Listener listener) {
+        var dispatch = dispatches.computeIfAbsent(member, m -> {
+            var newDispatch = new Dispatch();
+            XposedBridge.hookMethod(m, newDispatch);
+            return newDispatch;
+        });
+        dispatch.add(new Entry(owner.getPluginName(), priority, listener));
+    }
+
+    /**
+     * @return one line per member hooked by more than one feature, naming those features
+     */
+    public static List<String> describeSharedMembers() {
+        var lines = new ArrayList<String>();
+        for (var entry : dispatches.entrySet()) {
+            var listeners = entry.getValue().entries;
+            if (listeners.length < 2) continue;
+            var owners = new ArrayList<String>();
+            for (var listener : listeners) owners.add(listener.owner);
+            lines.add(entry.getKey().getDeclaringClass().getName() + "." + entry.getKey().getName() + " <- " + String.join(", ", owners));
+        }
+        return lines;
+    }
+
+    public interface Listener {
+        default void beforeHookedMethod(XC_MethodHook.MethodHookParam param) throws Throwable {
+        }
+
+        default void afterHookedMethod(XC_MethodHook.MethodHookParam param) throws Throwable {
+        }
+    }
+
+    private static class Entry {
+        final String owner;
+        final int priority;
+        final Listener listener;
+
+        Entry(String owner, int priority, Listener listener) {
+            this.owner = owner;
+            this.priority = priority;
+            this.listener = listener;
+        }
+    }
+
+    private static class Dispatch extends XC_MethodHook {
+        private volatile Entry[] entries = new Entry[0];
+        // listeners whose before ran, per thread and stacked because a hooked method can re-enter
+        private final ThreadLocal<ArrayDeque<Entry[]>> ran = ThreadLocal.withInitial(ArrayDeque::new);
+
+        synchronized void add(Entry entry) {
+            var list = new ArrayList<>(Arrays.asList(entries));
+            list.add(entry);
+            list.sort(Comparator.comparingInt((Entry e) -> e.priority).reversed());
+            entries = list.toArray(new Entry[0]);
+        }
+
+        @Override
+        protected void beforeHookedMethod(MethodHookParam param) {
+            var snapshot = entries;
+            for (int i = 0; i < snapshot.length; i++) {
+                var entry = snapshot[i];
+                try {
+                    entry.listener.beforeHookedMethod(param);
+                } catch (Throwable t) {
+                    XposedBridge.log("[" + entry.owner + "] Error:");
+                    XposedBridge.log(t);
+                }
+                if (i < snapshot.length - 1 && (param.getResult() != null || param.hasThrowable())) {
+                    snapshot = Arrays.copyOf(snapshot, i + 1);
+                    break;
+                }
+            }
+            ran.get().push(snapshot);
+        }
+
+        @Override
+        protected void afterHookedMethod(MethodHookParam param) {
+            var snapshot = ran.get().poll();
+            if (snapshot == null) snapshot = entries;
+            for (int i = snapshot.length - 1; i >= 0; i--) {
+                var entry = snapshot[i];
+                try {
+                    entry.listener.afterHookedMethod(param);
+                } catch (Throwable t) {
+                    XposedBridge.log("[" + entry.owner + "] Error:");
+                    XposedBridge.log(t);
+                }
+            }
+        }
+    }
+}
@@ -10,7 +10,8 @@ import androidx.annotation.Nullable;
 
 public class WaCallback implements Application.ActivityLifecycleCallbacks {
     private static void triggerActivityState(@NonNull Activity activity, WppCore.ActivityChangeState.ChangeType type) {
-        WppCore.listenerAcitivity.forEach((listener) -> listener.onChange(activity, type));
+        ConversationState.onActivityState(activity, type);
+        ActivityListeners.dispatch(activity, type);
     }
 
     @Override
@@ -99,6 +100,7 @@ public class WaCallback implements Application.ActivityLifecycleCallbacks {
     @Override
     public void onActivityDestroyed(@NonNull Activity activity) {
         WppCore.activities.remove(activity);
+        ConversationState.onActivityDestroyed(activity);
     }
 
     /**
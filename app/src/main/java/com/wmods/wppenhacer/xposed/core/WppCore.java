@@ -7,6 +7,8 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.database.sqlite.SQLiteDatabase;
 import android.graphics.drawable.Drawable;
+import android.os.Looper;
+import android.os.RemoteException;
 import android.text.TextUtils;
 import android.widget.Toast;
 
@@ -20,8 +22,12 @@ import com.wmods.wppenhacer.xposed.bridge.client.BridgeClient;
 import com.wmods.wppenhacer.xposed.bridge.client.ProviderClient;
 import com.wmods.wppenhacer.xposed.core.components.AlertDialogWpp;
 import com.wmods.wppenhacer.xposed.core.components.FMessageWpp;
+import com.wmods.wppenhacer.xposed.core.components.JidWpp;
+import com.wmods.wppenhacer.xposed.core.db.ContactNameCache;
+import com.wmods.wppenhacer.xposed.core.db.MessageStore;
 import com.wmods.wppenhacer.xposed.core.devkit.Unobfuscator;
 import com.wmods.wppenhacer.xposed.core.devkit.UnobfuscatorCache;
+import com.wmods.wppenhacer.xposed.utils.ContactPhotoCache;
 import com.wmods.wppenhacer.xposed.utils.ReflectionUtils;
 import com.wmods.wppenhacer.xposed.utils.ResId;
 import com.wmods.wppenhacer.xposed.utils.Utils;
@@ -34,10 +40,17 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XSharedPreferences;
@@ -46,12 +59,12 @@ import de.robv.android.xposed.XposedHelpers;
 
 public class WppCore {
 
-    static final HashSet<ActivityChangeState> listenerAcitivity = new HashSet<>();
     @SuppressLint("StaticFieldLeak")
     static Activity mCurrentActivity;
     static LinkedHashSet<Activity> activities = new LinkedHashSet<>();
     private static Class<?> mGenJidClass;
     private static Method mGenJidMethod;
+    private static final Map<Class<?>, Method> rawStringMethods = new ConcurrentHashMap<>();
     private static Class bottomDialog;
     private static Field convChatField;
     private static Field chatJidField;
@@ -59,7 +72,20 @@ public class WppCore {
     private static Object mStartUpConfig;
     private static Object mActionUser;
     private static SQLiteDatabase mWaDatabase;
+    private static ContactNameCache mContactNameCache;
     public static BaseClient client;
+    private static final long BRIDGE_WAIT_SECONDS = 5;
+    private static final ExecutorService bridgeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "WaeBridgeConnect");
+        // a connection attempt stuck in a binder call must not keep the process alive
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static CompletableFuture<WaeIIFace> bridgeFuture;
+    private static volatile boolean bridgeAlive;
+    private static volatile boolean lspatchFallback;
+    private static BridgeClient bridgeClient;
+    private static ProviderClient providerClient;
     private static Object mCachedMessageStore;
     private static Class<?> mSettingsNotificationsClass;
 
@@ -77,6 +103,7 @@ public class WppCore {
 
         convChatField = Unobfuscator.loadAntiRevokeConvChatField(loader);
         chatJidField = Unobfuscator.loadAntiRevokeChatJidField(loader);
+        ConversationState.initialize(loader);
 
         // Settings notifications activity (required for ActivityController.EXPORTED_ACTIVITY)
         mSettingsNotificationsClass = getSettingsNotificationsActivityClass(loader);
@@ -112,7 +139,7 @@ public class WppCore {
         loadWADatabase();
 
         if (!pref.getBoolean("lite_mode", false)) {
-            initBridge(Utils.getApplication());
+            initBridge();
         }
 
         // Initialize LSPatch service integration
@@ -135,7 +162,99 @@ public class WppCore {
         }
     }
 
-    public static void initBridge(Context context) throws Exception {
+    /**
+     * Starts connecting to the bridge in the background. Hooking never waits for it: callers that
+     * need the service use {@link #withBridge(Consumer)} or {@link #connectBridge()}, or block
+     * briefly in {@link #getClientBridge()}.
+     */
+    public static void initBridge() {
+        connectBridge().exceptionally(e -> {
+            var cause = e.getCause() != null ? e.getCause() : e;
+            XposedBridge.log(cause);
+            Utils.showToast(String.valueOf(cause.getMessage()), Toast.LENGTH_LONG);
+            return null;
+        });
+    }
+
+    /**
+     * Returns the bridge service, connecting on first use. Concurrent callers share the same attempt.
+     * A finished attempt is kept: a failure, or the LSPatch fallback which completes with null, is
+     * returned again until {@link #reconnectBridge()} is called or the connected binder dies.
+     */
+    public static synchronized CompletableFuture<WaeIIFace> connectBridge() {
+        if (isBridgeAlive()) return CompletableFuture.completedFuture(client.getService());
+        // bridgeAlive is still set when the binder died before its death notice arrived
+        if (bridgeFuture != null && !(bridgeFuture.isDone() && bridgeAlive)) return bridgeFuture;
+        bridgeAlive = false;
+        bridgeFuture = CompletableFuture.supplyAsync(() -> {
+            BaseClient connected;
+            try {
+                connected = connectBridge(Utils.getApplication());
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+            lspatchFallback = connected == null;
+            if (connected == null) return null;
+            var service = connected.getService();
+            try {
+                service.asBinder().linkToDeath(() -> onBridgeDied(service), 0);
+            } catch (RemoteException e) {
+                throw new CompletionException(e);
+            }
+            client = connected;
+            bridgeAlive = true;
+            return service;
+        }, bridgeExecutor);
+        return bridgeFuture;
+    }
+
+    /**
+     * Runs {@code action} with the bridge service without blocking a thread while it connects.
+     * With a live connection the action runs right away on the calling thread; otherwise it runs
+     * on the cached pool once {@link #connectBridge()} completes, so long binder calls never hold
+     * the connecting thread. A failed connection prompts the user to reconnect, like
+     * {@link #getClientBridge()}.
+     *
+     * @return completes once {@code action} ran, exceptionally when the bridge is unavailable or
+     * {@code action} threw
+     */
+    public static CompletableFuture<Void> withBridge(@NonNull Consumer<WaeIIFace> action) {
+        var future = connectBridge();
+        if (!future.isDone()) future = future.thenApplyAsync(service -> service, Utils.getExecutorCachedService());
+        return future.handle((service, e) -> {
+            if (service == null) {
+                if (lspatchFallback) throw new CompletionException(new Exception("Bridge is not available with the LSPatch fallback"));
+                promptReconnect();
+                throw new CompletionException(new Exception("Failed connect to Bridge", e));
+            }
+            action.accept(service);
+            return null;
+        });
+    }
+
+    /**
+     * Drops the outcome of a finished attempt and connects again.
+     */
+    public static synchronized CompletableFuture<WaeIIFace> reconnectBridge() {
+        if (bridgeFuture != null && bridgeFuture.isDone()) bridgeFuture = null;
+        return connectBridge();
+    }
+
+    private static synchronized void onBridgeDied(WaeIIFace service) {
+        // a later attempt may already have replaced this binder
+        if (client == null || client.getService() != service) return;
+        XposedBridge.log("Bridge binder died, reconnecting on next use");
+        bridgeAlive = false;
+        if (bridgeFuture != null && bridgeFuture.isDone()) bridgeFuture = null;
+    }
+
+    /**
+     * Connects one of the clients, reusing the instances of earlier attempts.
+     *
+     * @return the connected client, or null when only the LSPatch fallback bridge is available
+     */
+    @Nullable
+    private static BaseClient connectBridge(Context context) throws Exception {
         var prefsCacheHooks = UnobfuscatorCache.getInstance().sPrefsCacheHooks;
         int preferredOrder = prefsCacheHooks.getInt("preferredOrder", 1); // 0 for ProviderClient first, 1 for BridgeClient first
 
@@ -156,24 +275,27 @@ public class WppCore {
             }
         }
 
-        boolean connected = false;
+        if (bridgeClient == null) bridgeClient = new BridgeClient(context);
+        if (providerClient == null) providerClient = new ProviderClient(context);
+
+        BaseClient connected = null;
         if (preferredOrder == 0) {
-            if (tryConnectBridge(new ProviderClient(context))) {
-                connected = true;
-            } else if (tryConnectBridge(new BridgeClient(context))) {
-                connected = true;
+            if (tryConnectBridge(providerClient)) {
+                connected = providerClient;
+            } else if (tryConnectBridge(bridgeClient)) {
+                connected = bridgeClient;
                 preferredOrder = 1; // Update preference to BridgeClient first
             }
         } else {
-            if (tryConnectBridge(new BridgeClient(context))) {
-                connected = true;
-            } else if (tryConnectBridge(new ProviderClient(context))) {
-                connected = true;
+            if (tryConnectBridge(bridgeClient)) {
+                connected = bridgeClient;
+            } else if (tryConnectBridge(providerClient)) {
+                connected = providerClient;
                 preferredOrder = 0; // Update preference to ProviderClient first
             }
         }
 
-        if (!connected) {
+        if (connected == null) {
             // In LSPatch environment, provide more specific error information
             if (LSPatchCompat.isLSPatchEnvironment()) {
                 XposedBridge.log("Bridge connection failed in LSPatch environment");
@@ -181,7 +303,7 @@ public class WppCore {
                 // Try to initialize LSPatch bridge as fallback
                 if (LSPatchBridge.initialize(context)) {
                     XposedBridge.log("LSPatch bridge initialized as fallback");
-                    return; // Don't throw exception if LSPatch bridge works
+                    return null; // Don't throw exception if LSPatch bridge works
                 }
 
                 throw new Exception(context.getString(ResId.string.bridge_error) + " (LSPatch Mode: " + LSPatchCompat.getCurrentMode() + ")");
@@ -199,13 +321,13 @@ public class WppCore {
         } else {
             XposedBridge.log("Bridge successfully connected in classic Xposed mode");
         }
+        return connected;
     }
 
 
     private static boolean tryConnectBridge(BaseClient baseClient) throws Exception {
         try {
             XposedBridge.log("Trying to connect to " + baseClient.getClass().getSimpleName());
-            client = baseClient;
             CompletableFuture<Boolean> canLoadFuture = baseClient.connect();
             Boolean canLoad = canLoadFuture.get();
             if (!canLoad) throw new Exception();
@@ -258,6 +380,8 @@ public class WppCore {
         var database = new File(dataDir, "databases/wa.db");
         if (database.exists()) {
             mWaDatabase = SQLiteDatabase.openDatabase(database.getAbsolutePath(), null, SQLiteDatabase.OPEN_READONLY);
+            mContactNameCache = new ContactNameCache(mWaDatabase);
+            Utils.getExecutor().execute(() -> mContactNameCache.warmUp(MessageStore.getInstance().getRecentChatJids(200)));
         }
     }
 
@@ -349,51 +473,38 @@ public class WppCore {
 
     @NonNull
     public static String getContactName(Object userJid) {
-        loadWADatabase();
-        if (mWaDatabase == null || userJid == null) return "";
-        String name = getSContactName(userJid, false);
-        if (!TextUtils.isEmpty(name)) return name;
-        return getWppContactName(userJid);
+        var name = getCachedContactName(userJid);
+        if (name == null) return "";
+        return !name.displayName.isEmpty() ? name.displayName : name.verifiedName;
     }
 
     @NonNull
     public static String getSContactName(Object userJid, boolean saveOnly) {
-        loadWADatabase();
-        if (mWaDatabase == null || userJid == null) return "";
-        String selection;
-        if (saveOnly) {
-            selection = "jid = ? AND raw_contact_id > 0";
-        } else {
-            selection = "jid = ?";
-        }
-        String name = null;
-        var rawJid = getRawString(userJid);
-        var cursor = mWaDatabase.query("wa_contacts", new String[]{"display_name"}, selection, new String[]{rawJid}, null, null, null);
-        if (cursor != null && cursor.moveToFirst()) {
-            name = cursor.getString(0);
-            cursor.close();
-        }
-        return name == null ? "" : name;
+        var name = getCachedContactName(userJid);
+        if (name == null) return "";
+        return saveOnly ? name.savedName : name.displayName;
     }
 
     @NonNull
     public static String getWppContactName(Object userJid) {
+        var name = getCachedContactName(userJid);
+        if (name == null) return "";
+        return name.verifiedName;
+    }
+
+    @Nullable
+    private static ContactNameCache.ContactName getCachedContactName(Object userJid) {
         loadWADatabase();
-        if (mWaDatabase == null || userJid == null) return "";
-        String name = null;
+        if (mContactNameCache == null || userJid == null) return null;
         var rawJid = getRawString(userJid);
-        var cursor2 = mWaDatabase.query("wa_vnames", new String[]{"verified_name"}, "jid = ?", new String[]{rawJid}, null, null, null);
-        if (cursor2 != null && cursor2.moveToFirst()) {
-            name = cursor2.getString(0);
-            cursor2.close();
-        }
-        return name == null ? "" : name;
+        if (rawJid == null) return null;
+        return mContactNameCache.get(rawJid);
     }
 
     public static Object getFMessageFromKey(Object messageKey) {
         if (messageKey == null) return null;
         try {
-            var methodResult = ReflectionUtils.findMethodUsingFilter(mCachedMessageStore.getClass(), (method) -> method.getParameterCount() == 1 && FMessageWpp.Key.TYPE.isAssignableFrom(method.getParameterTypes()[0]) && method.getReturnType() == FMessageWpp.TYPE);
+            var methodResult = ReflectionUtils.findMethodUsingFilter(mCachedMessageStore.getClass(), "getFMessageFromKey", (method) -> method.getParameterCount() == 1 && FMessageWpp.Key.TYPE.isAssignableFrom(method.getParameterTypes()[0]) && method.getReturnType() == FMessageWpp.TYPE);
             return ReflectionUtils.callMethod(methodResult, mCachedMessageStore, messageKey);
         } catch (Exception e) {
             XposedBridge.log(e);
@@ -403,9 +514,15 @@ public class WppCore {
 
 
     public static Object createUserJid(String rawjid) {
+        var jid = JidWpp.of(rawjid);
+        if (jid == null) return null;
+        var userJid = jid.getUserJid();
+        if (userJid != null) return userJid;
         var genInstance = XposedHelpers.newInstance(mGenJidClass);
         try {
-            return mGenJidMethod.invoke(genInstance, rawjid);
+            userJid = mGenJidMethod.invoke(genInstance, rawjid);
+            jid.setUserJid(userJid);
+            return userJid;
         } catch (Exception e) {
             XposedBridge.log(e);
         }
@@ -414,21 +531,34 @@ public class WppCore {
 
     public static String getRawString(Object userjid) {
         if (userjid == null) return null;
-        return (String) XposedHelpers.callMethod(userjid, "getRawString");
+        var method = rawStringMethods.get(userjid.getClass());
+        if (method == null) {
+            method = XposedHelpers.findMethodBestMatch(userjid.getClass(), "getRawString");
+            rawStringMethods.put(userjid.getClass(), method);
+        }
+        try {
+            return (String) method.invoke(userjid);
+        } catch (Exception e) {
+            XposedBridge.log(e);
+            return null;
+        }
     }
 
     public static boolean isGroup(String str) {
         if (str == null) return false;
-        return str.contains("-") || str.contains("@g.us") || (!str.contains("@") && str.length() > 16);
+        return JidWpp.of(str).isGroup();
     }
 
+    @Nullable
     public static String getCurrentRawJID() {
+        return ConversationState.get().getRawJid();
+    }
+
+    @Nullable
+    static String resolveConversationJid(@NonNull Activity conversation, boolean tablet) {
         try {
-            var conversation = getCurrentConversation();
-            if (conversation == null) return null;
             Object chatField;
-            if (conversation.getClass().getSimpleName().equals("HomeActivity")) {
-                // tablet mode found
+            if (tablet) {
                 var convFragmentMethod = Unobfuscator.loadHomeConversationFragmentMethod(conversation.getClassLoader());
                 var convFragment = convFragmentMethod.invoke(null, conversation);
                 var convField = Unobfuscator.loadAntiRevokeConvFragmentField(conversation.getClassLoader());
@@ -436,6 +566,7 @@ public class WppCore {
             } else {
                 chatField = convChatField.get(conversation);
             }
+            if (chatField == null) return null;
             var chatJidObj = chatJidField.get(chatField);
             return getRawString(chatJidObj);
         } catch (Exception e) {
@@ -445,24 +576,18 @@ public class WppCore {
     }
 
     public static String stripJID(String str) {
-        try {
-            if (str == null) return null;
-            if (str.contains(".") && str.contains("@") && str.indexOf(".") < str.indexOf("@")) {
-                return str.substring(0, str.indexOf("."));
-            } else if (str.contains("@g.us") || str.contains("@s.whatsapp.net") || str.contains("@broadcast")) {
-                return str.substring(0, str.indexOf("@"));
-            }
-            return str;
-        } catch (Exception e) {
-            XposedBridge.log(e);
-            return str;
-        }
+        if (str == null) return null;
+        return JidWpp.of(str).user;
     }
 
     public static Drawable getContactPhotoDrawable(String jid) {
+        return getContactPhotoDrawable(jid, 0);
+    }
+
+    public static Drawable getContactPhotoDrawable(String jid, int sizePx) {
         var file = getContactPhotoFile(jid);
         if (file == null) return null;
-        return Drawable.createFromPath(file.getAbsolutePath());
+        return ContactPhotoCache.getDrawable(file, jid, sizePx);
     }
 
     public static File getContactPhotoFile(String jid) {
@@ -497,7 +622,7 @@ public class WppCore {
     public static Drawable getMyPhoto() {
         String datafolder = Utils.getApplication().getCacheDir().getParent() + "/";
         File file = new File(datafolder + "files" + "/" + "me.jpg");
-        if (file.exists()) return Drawable.createFromPath(file.getAbsolutePath());
+        if (file.exists()) return ContactPhotoCache.getDrawable(file, "me", 0);
         return null;
     }
 
@@ -507,16 +632,7 @@ public class WppCore {
 
     @Nullable
     public static Activity getCurrentConversation() {
-        if (mCurrentActivity == null) return null;
-        Class<?> conversation = XposedHelpers.findClass("com.whatsapp.Conversation", mCurrentActivity.getClassLoader());
-        if (conversation.isInstance(mCurrentActivity)) return mCurrentActivity;
-
-        // for tablet UI, they're using HomeActivity instead of Conversation
-        // TODO: Add more checks for ConversationFragment
-        Class<?> home = getHomeActivityClass(mCurrentActivity.getClassLoader());
-        if (mCurrentActivity.getResources().getConfiguration().smallestScreenWidthDp >= 600 && home.isInstance(mCurrentActivity))
-            return mCurrentActivity;
-        return null;
+        return ConversationState.get().activity;
     }
 
     public static SharedPreferences getPrivPrefs() {
@@ -564,25 +680,72 @@ public class WppCore {
     }
 
     public static void addListenerActivity(ActivityChangeState listener) {
-        listenerAcitivity.add(listener);
+        ActivityListeners.add(Activity.class, EnumSet.allOf(ActivityChangeState.ChangeType.class), listener);
+    }
+
+    /**
+     * Registers {@code listener} only for instances of {@code activityClass} and the given events.
+     */
+    public static void addListenerActivity(@NonNull Class<?> activityClass, @NonNull ActivityChangeState listener, @NonNull ActivityChangeState.ChangeType... types) {
+        var set = types.length == 0 ? EnumSet.allOf(ActivityChangeState.ChangeType.class) : EnumSet.copyOf(Arrays.asList(types));
+        ActivityListeners.add(activityClass, set, listener);
+    }
+
+    public static void addListenerActivity(@NonNull ActivityChangeState listener, @NonNull ActivityChangeState.ChangeType... types) {
+        addListenerActivity(Activity.class, listener, types);
+    }
+
+    public static void removeListenerActivity(ActivityChangeState listener) {
+        ActivityListeners.remove(listener);
+    }
+
+    /**
+     * Checks the bridge connection without prompting the user to reconnect.
+     */
+    public static boolean isBridgeAlive() {
+        // death is reported through linkToDeath, so no ping round trip is needed here
+        return bridgeAlive && client != null && client.getService() != null && client.getService().asBinder().isBinderAlive();
     }
 
     public static WaeIIFace getClientBridge() throws Exception {
-        if (client == null || client.getService() == null || !client.getService().asBinder().isBinderAlive() || !client.getService().asBinder().pingBinder()) {
-            WppCore.getCurrentActivity().runOnUiThread(() -> {
-                var dialog = new AlertDialogWpp(WppCore.getCurrentActivity());
-                dialog.setTitle("Bridge Error");
-                dialog.setMessage("The Connection with WaEnhancer was lost, it is necessary to reconnect with WaEnhancer in order to reestablish the connection.");
-                dialog.setPositiveButton("reconnect", (dialog1, which) -> {
-                    client.tryReconnect();
-                    dialog.dismiss();
+        if (isBridgeAlive()) return client.getService();
+        var future = connectBridge();
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            try {
+                var service = future.get(BRIDGE_WAIT_SECONDS, TimeUnit.SECONDS);
+                if (service != null) return service;
+            } catch (Exception ignored) {
+            }
+        }
+        if (!future.isDone()) throw new Exception("Bridge is still connecting");
+        if (isBridgeAlive()) return client.getService();
+        if (lspatchFallback) throw new Exception("Bridge is not available with the LSPatch fallback");
+        promptReconnect();
+        throw new Exception("Failed connect to Bridge");
+    }
+
+    private static void promptReconnect() {
+        var activity = WppCore.getCurrentActivity();
+        // nothing to show the dialog on while WhatsApp is in background
+        if (activity == null) return;
+        activity.runOnUiThread(() -> {
+            var dialog = new AlertDialogWpp(activity);
+            dialog.setTitle("Bridge Error");
+            dialog.setMessage("The Connection with WaEnhancer was lost, it is necessary to reconnect with WaEnhancer in order to reestablish the connection.");
+            dialog.setPositiveButton("reconnect", (dialog1, which) -> {
+                reconnectBridge().whenComplete((service, e) -> {
+                    if (service != null) {
+                        Utils.showToast("Reconnected to Bridge", Toast.LENGTH_SHORT);
+                    } else if (e != null) {
+                        XposedBridge.log(e);
+                        Utils.doRestart(Utils.getApplication());
+                    }
                 });
-                dialog.setNegativeButton("cancel", null);
-                dialog.show();
+                dialog.dismiss();
             });
-            throw new Exception("Failed connect to Bridge");
-        }
-        return client.getService();
+            dialog.setNegativeButton("cancel", null);
+            dialog.show();
+        });
     }
 
 
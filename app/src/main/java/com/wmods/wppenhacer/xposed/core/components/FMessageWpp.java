@@ -40,7 +40,7 @@ public class FMessageWpp {
             var userJidClass = classLoader.loadClass("com.whatsapp.jid.UserJid");
             userJidMethod = ReflectionUtils.findMethodUsingFilter(TYPE, method -> method.getParameterCount() == 0 && method.getReturnType() == userJidClass);
             keyMessage = Unobfuscator.loadMessageKeyField(classLoader);
-            Key.TYPE = keyMessage.getType();
+            Key.initialize(keyMessage.getType());
             messageMethod = Unobfuscator.loadNewMessageMethod(classLoader);
             messageWithMediaMethod = Unobfuscator.loadNewMessageWithMediaMethod(classLoader);
             getFieldIdMessage = Unobfuscator.loadSetEditMessageField(classLoader);
@@ -139,13 +139,11 @@ public class FMessageWpp {
     public File getMediaFile() {
         try {
             if (!isMediaFile()) return null;
-            for (var field : abstractMediaMessageClass.getDeclaredFields()) {
-                if (field.getType().isPrimitive()) continue;
-                var fileField = ReflectionUtils.getFieldByType(field.getType(), File.class);
-                if (fileField != null) {
-                    var mediaFile = ReflectionUtils.getObjectField(field, fmessage);
-                    return (File) fileField.get(mediaFile);
-                }
+            var mediaDataField = ReflectionUtils.findFieldUsingFilterIfExists(abstractMediaMessageClass, "mediaData", field -> !field.getType().isPrimitive() && ReflectionUtils.getFieldByType(field.getType(), File.class) != null);
+            if (mediaDataField != null) {
+                var fileField = ReflectionUtils.getFieldByType(mediaDataField.getType(), File.class);
+                var mediaFile = ReflectionUtils.getObjectField(mediaDataField, fmessage);
+                return (File) fileField.get(mediaFile);
             }
         } catch (Exception e) {
             XposedBridge.log(e);
@@ -180,32 +178,80 @@ public class FMessageWpp {
     /** @noinspection unused*/
     public static class Key {
         public static Class<?> TYPE;
+        private static Field remoteJidField;
+        private static Field messageIdField;
+        private static Field fromMeField;
 
-        public Object thisObject;
-        public String messageID;
-        public boolean isFromMe;
-        public Object remoteJid;
+        public final Object thisObject;
+        private String messageID;
+        private boolean isFromMe;
+        private Object remoteJid;
+        private boolean messageIDLoaded;
+        private boolean isFromMeLoaded;
+        private boolean remoteJidLoaded;
 
         public Key(Object key) {
             this.thisObject = key;
-            this.messageID = (String) XposedHelpers.getObjectField(key, "A01");
-            this.isFromMe = XposedHelpers.getBooleanField(key, "A02");
-            this.remoteJid = XposedHelpers.getObjectField(key, "A00");
+        }
+
+        /**
+         * Resolves the obfuscated key fields once, wrappers then only read the ones callers use.
+         */
+        static void initialize(Class<?> type) {
+            TYPE = type;
+            remoteJidField = XposedHelpers.findField(type, "A00");
+            messageIdField = XposedHelpers.findField(type, "A01");
+            fromMeField = XposedHelpers.findField(type, "A02");
+        }
+
+        public String getMessageID() {
+            if (!messageIDLoaded) {
+                messageID = (String) ReflectionUtils.getObjectField(messageIdField, thisObject);
+                messageIDLoaded = true;
+            }
+            return messageID;
+        }
+
+        public boolean isFromMe() {
+            if (!isFromMeLoaded) {
+                try {
+                    isFromMe = fromMeField.getBoolean(thisObject);
+                } catch (Exception e) {
+                    XposedBridge.log(e);
+                }
+                isFromMeLoaded = true;
+            }
+            return isFromMe;
+        }
+
+        public Object getRemoteJid() {
+            if (!remoteJidLoaded) {
+                remoteJid = ReflectionUtils.getObjectField(remoteJidField, thisObject);
+                remoteJidLoaded = true;
+            }
+            return remoteJid;
         }
 
         public void setIsFromMe(boolean value) {
-            XposedHelpers.setBooleanField(thisObject, "A02", value);
+            try {
+                fromMeField.setBoolean(thisObject, value);
+            } catch (Exception e) {
+                XposedBridge.log(e);
+            }
             this.isFromMe = value;
+            this.isFromMeLoaded = true;
         }
 
         public void setRemoteJid(Object value) {
-            XposedHelpers.setObjectField(thisObject, "A00", value);
+            ReflectionUtils.setObjectField(remoteJidField, thisObject, value);
             this.remoteJid = value;
+            this.remoteJidLoaded = true;
         }
 
         public void setMessageID(String messageID) {
-            XposedHelpers.setObjectField(thisObject, "A01", messageID);
+            ReflectionUtils.setObjectField(messageIdField, thisObject, messageID);
             this.messageID = messageID;
+            this.messageIDLoaded = true;
         }
     }
 
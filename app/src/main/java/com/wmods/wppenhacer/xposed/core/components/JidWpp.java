@@ -0,0 +1,93 @@
+package com.wmods.wppenhacer.xposed.core.components;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parsed form of a raw JID string such as {@code 5511999999999.0:12@s.whatsapp.net}.
+ * <p>
+ * Instances are immutable apart from the WhatsApp Jid object, which is attached lazily and held
+ * weakly. {@link #of(String)} interns them so hot paths that strip or classify the same JIDs over
+ * and over only parse each string once. The cache is an access-ordered map bounded to
+ * {@link #CACHE_SIZE} entries, so the least recently used JID is evicted instead of the whole
+ * cache being dropped at once.
+ * <p>
+ * The raw strings are held strongly on purpose. WhatsApp builds a new String for most lookups, so
+ * weak keys would be collected right after the call that added them and the cache would never
+ * hit; the bound keeps the retained strings to a few tens of kilobytes.
+ */
+public final class JidWpp {
+
+    static final int CACHE_SIZE = 1024;
+    private static final Map<String, JidWpp> cache = new LinkedHashMap<>(CACHE_SIZE * 4 / 3 + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JidWpp> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    @NonNull
+    public final String raw;
+    /**
+     * Same value as {@code WppCore.stripJID}: the number or group id without agent, device or server.
+     */
+    @NonNull
+    public final String user;
+    private final boolean group;
+    private volatile WeakReference<Object> userJid;
+
+    private JidWpp(@NonNull String raw) {
+        this.raw = raw;
+        int at = raw.indexOf('@');
+        int dot = raw.indexOf('.');
+        if (dot != -1 && at != -1 && dot < at) {
+            user = raw.substring(0, dot);
+        } else if (raw.contains("@g.us") || raw.contains("@s.whatsapp.net") || raw.contains("@broadcast")) {
+            user = raw.substring(0, at);
+        } else {
+            user = raw;
+        }
+        group = raw.indexOf('-') != -1 || raw.contains("@g.us") || (at == -1 && raw.length() > 16);
+    }
+
+    @Nullable
+    public static JidWpp of(@Nullable String raw) {
+        if (raw == null) return null;
+        synchronized (cache) {
+            var jid = cache.get(raw);
+            if (jid == null) {
+                jid = new JidWpp(raw);
+                cache.put(raw, jid);
+            }
+            return jid;
+        }
+    }
+
+    /**
+     * Same heuristic as {@code WppCore.isGroup}, which also treats legacy {@code creator-timestamp}
+     * ids and long bare ids as groups.
+     */
+    public boolean isGroup() {
+        return group;
+    }
+
+    @Nullable
+    public Object getUserJid() {
+        var ref = userJid;
+        return ref == null ? null : ref.get();
+    }
+
+    public void setUserJid(@Nullable Object jid) {
+        userJid = jid == null ? null : new WeakReference<>(jid);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return raw;
+    }
+}
@@ -5,20 +5,34 @@ import android.content.SharedPreferences;
 
 import androidx.annotation.Nullable;
 
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XposedHelpers;
 
 public class SharedPreferencesWrapper implements SharedPreferences {
 
-    private final static HashSet<SPrefHook> prefHook = new HashSet<>();
+    // Hooks for every key of every file
+    private final static List<SPrefHook> globalHooks = new CopyOnWriteArrayList<>();
+    // file name -> key -> hooks
+    private final static Map<String, Map<String, List<SPrefHook>>> keyHooks = new ConcurrentHashMap<>();
+    // The framework caches one preferences instance per file, so wrappers are cached the same way
+    private final static Map<SharedPreferences, SharedPreferencesWrapper> wrappers = new ConcurrentHashMap<>();
     private final SharedPreferences mPreferences;
+    private final Map<String, List<SPrefHook>> mKeyHooks;
 
     public SharedPreferencesWrapper(SharedPreferences sharedPreferences) {
+        this(sharedPreferences, null);
+    }
+
+    private SharedPreferencesWrapper(SharedPreferences sharedPreferences, @Nullable String name) {
         mPreferences = sharedPreferences;
+        mKeyHooks = name == null ? Collections.emptyMap() : keyHooks.computeIfAbsent(name, k -> new ConcurrentHashMap<>());
     }
 
     @Override
@@ -30,6 +44,7 @@ public class SharedPreferencesWrapper implements SharedPreferences {
     @Override
     public String getString(String s, @Nullable String s1) {
         var value = mPreferences.getString(s, s1);
+        if (!isHooked(s)) return value;
         return (String) hookValue(s, value);
     }
 
@@ -40,30 +55,35 @@ public class SharedPreferencesWrapper implements SharedPreferences {
     @Override
     public Set<String> getStringSet(String s, @Nullable Set<String> set) {
         var value = mPreferences.getStringSet(s, set);
+        if (!isHooked(s)) return value;
         return (Set<String>) hookValue(s, value);
     }
 
     @Override
     public int getInt(String s, int i) {
         var value = mPreferences.getInt(s, i);
+        if (!isHooked(s)) return value;
         return (int) hookValue(s, value);
     }
 
     @Override
     public long getLong(String s, long l) {
         var value = mPreferences.getLong(s, l);
+        if (!isHooked(s)) return value;
         return (long) hookValue(s, value);
     }
 
     @Override
     public float getFloat(String s, float v) {
         var value = mPreferences.getFloat(s, v);
+        if (!isHooked(s)) return value;
         return (float) hookValue(s, value);
     }
 
     @Override
     public boolean getBoolean(String s, boolean b) {
         var value = mPreferences.getBoolean(s, b);
+        if (!isHooked(s)) return value;
         return (boolean) hookValue(s, value);
     }
 
@@ -92,18 +112,46 @@ public class SharedPreferencesWrapper implements SharedPreferences {
             @Override
             protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                 var pref = (SharedPreferences) param.getResult();
-                if (pref instanceof SharedPreferencesWrapper) return;
-                param.setResult(new SharedPreferencesWrapper(pref));
+                if (pref == null || pref instanceof SharedPreferencesWrapper) return;
+                var name = (String) param.args[0];
+                var wrapper = wrappers.get(pref);
+                if (wrapper == null) {
+                    wrapper = wrappers.computeIfAbsent(pref, p -> new SharedPreferencesWrapper(p, name));
+                }
+                param.setResult(wrapper);
             }
         });
     }
 
+    /**
+     * Registers a hook called for every key of every preferences file.
+     * Prefer {@link #addHook(String, String, SPrefHook)}, which leaves other keys untouched.
+     */
     public static void addHook(SPrefHook hook) {
-        prefHook.add(hook);
+        if (!globalHooks.contains(hook)) globalHooks.add(hook);
+    }
+
+    /**
+     * Registers a hook called only when {@code key} is read from the preferences file {@code name}.
+     */
+    public static void addHook(String name, String key, SPrefHook hook) {
+        keyHooks.computeIfAbsent(name, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> new CopyOnWriteArrayList<>())
+                .add(hook);
+    }
+
+    private boolean isHooked(String key) {
+        return !globalHooks.isEmpty() || (key != null && mKeyHooks.containsKey(key));
     }
 
     private Object hookValue(String key, Object value) {
-        for (SPrefHook hook : prefHook) {
+        var hooks = key == null ? null : mKeyHooks.get(key);
+        if (hooks != null) {
+            for (SPrefHook hook : hooks) {
+                value = hook.hookValue(key, value);
+            }
+        }
+        for (SPrefHook hook : globalHooks) {
             value = hook.hookValue(key, value);
         }
         return value;
@@ -0,0 +1,136 @@
+package com.wmods.wppenhacer.xposed.core.db;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Caches display names resolved from WhatsApp's wa.db (wa_contacts and wa_vnames) by raw JID.
+ * Misses are cached as empty names. The whole cache is dropped when WhatsApp commits to wa.db,
+ * which is detected through PRAGMA data_version at most once per {@link #VERSION_CHECK_INTERVAL}.
+ */
+public class ContactNameCache {
+
+    private static final int CACHE_SIZE = 512;
+    private static final long VERSION_CHECK_INTERVAL = 1000;
+    private static final int WARM_UP_BATCH = 200;
+
+    private final SQLiteDatabase waDatabase;
+    private final LruCache<String, ContactName> cache = new LruCache<>(CACHE_SIZE);
+    private long dataVersion = -1;
+    private long lastVersionCheck;
+
+    public ContactNameCache(@NonNull SQLiteDatabase waDatabase) {
+        this.waDatabase = waDatabase;
+    }
+
+    @NonNull
+    public ContactName get(@NonNull String rawJid) {
+        checkDataVersion();
+        var name = cache.get(rawJid);
+        if (name == null) {
+            name = load(Collections.singletonList(rawJid)).get(rawJid);
+            if (name == null) name = ContactName.EMPTY;
+            cache.put(rawJid, name);
+        }
+        return name;
+    }
+
+    /**
+     * Loads the names of the given JIDs with one query per table, e.g. for the most recent chats.
+     */
+    public void warmUp(@NonNull List<String> rawJids) {
+        checkDataVersion();
+        for (int i = 0; i < rawJids.size(); i += WARM_UP_BATCH) {
+            var batch = rawJids.subList(i, Math.min(rawJids.size(), i + WARM_UP_BATCH));
+            var names = load(batch);
+            for (var rawJid : batch) {
+                var name = names.get(rawJid);
+                cache.put(rawJid, name == null ? ContactName.EMPTY : name);
+            }
+        }
+    }
+
+    public void invalidate() {
+        cache.evictAll();
+    }
+
+    private synchronized void checkDataVersion() {
+        var now = SystemClock.elapsedRealtime();
+        if (now - lastVersionCheck < VERSION_CHECK_INTERVAL) return;
+        lastVersionCheck = now;
+        try {
+            var version = DatabaseUtils.longForQuery(waDatabase, "PRAGMA data_version", null);
+            if (version != dataVersion) {
+                dataVersion = version;
+                cache.evictAll();
+            }
+        } catch (Exception e) {
+            XposedBridge.log(e);
+        }
+    }
+
+    private HashMap<String, ContactName> load(List<String> rawJids) {
+        var displayNames = new HashMap<String, String>();
+        var savedNames = new HashMap<String, String>();
+        var verifiedNames = new HashMap<String, String>();
+        var args = rawJids.toArray(new String[0]);
+        var placeholders = TextUtils.join(",", Collections.nCopies(args.length, "?"));
+        try (Cursor cursor = waDatabase.query("wa_contacts", new String[]{"jid", "display_name", "raw_contact_id"}, "jid IN (" + placeholders + ")", args, null, null, null)) {
+            while (cursor.moveToNext()) {
+                var jid = cursor.getString(0);
+                var displayName = cursor.getString(1);
+                if (TextUtils.isEmpty(displayName)) continue;
+                displayNames.putIfAbsent(jid, displayName);
+                if (cursor.getLong(2) > 0) savedNames.putIfAbsent(jid, displayName);
+            }
+        } catch (Exception e) {
+            XposedBridge.log(e);
+        }
+        try (Cursor cursor = waDatabase.query("wa_vnames", new String[]{"jid", "verified_name"}, "jid IN (" + placeholders + ")", args, null, null, null)) {
+            while (cursor.moveToNext()) {
+                var verifiedName = cursor.getString(1);
+                if (!TextUtils.isEmpty(verifiedName)) verifiedNames.putIfAbsent(cursor.getString(0), verifiedName);
+            }
+        } catch (Exception e) {
+            XposedBridge.log(e);
+        }
+        var result = new HashMap<String, ContactName>();
+        for (var rawJid : rawJids) {
+            var displayName = displayNames.get(rawJid);
+            var savedName = savedNames.get(rawJid);
+            var verifiedName = verifiedNames.get(rawJid);
+            if (displayName == null && verifiedName == null) continue;
+            result.put(rawJid, new ContactName(displayName, savedName, verifiedName));
+        }
+        return result;
+    }
+
+    public static class ContactName {
+        static final ContactName EMPTY = new ContactName(null, null, null);
+
+        @NonNull
+        public final String displayName;
+        @NonNull
+        public final String savedName;
+        @NonNull
+        public final String verifiedName;
+
+        ContactName(String displayName, String savedName, String verifiedName) {
+            this.displayName = displayName == null ? "" : displayName;
+            this.savedName = savedName == null ? "" : savedName;
+            this.verifiedName = verifiedName == null ? "" : verifiedName;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.wmods.wppenhacer.xposed.core.db;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.wmods.wppenhacer.xposed.core.WppCore;
+import com.wmods.wppenhacer.xposed.utils.Utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.robv.android.xposed.XSharedPreferences;
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Prunes and compacts the databases owned by the module (MessageHistory.db, delmessages.db and
+ * the saved media index in savejobs.db).
+ * The job is armed when WhatsApp goes to background and only starts once the main looper is idle,
+ * then runs on a background thread at most once per {@link #RUN_INTERVAL}.
+ */
+public class DatabaseRetention {
+
+    private static final long RUN_INTERVAL = TimeUnit.HOURS.toMillis(24);
+    /**
+     * Existing databases are only converted to incremental vacuum, which needs one full VACUUM,
+     * once at least this share of their pages is free.
+     */
+    private static final double CONVERT_FREE_RATIO = 0.25;
+    private static final String LAST_RUN_KEY = "db_retention_last_run";
+    private static final AtomicBoolean armed = new AtomicBoolean();
+    private static final AtomicBoolean running = new AtomicBoolean();
+    private static final AtomicInteger startedActivities = new AtomicInteger();
+    private static XSharedPreferences prefs;
+
+    public static void init(XSharedPreferences pref) {
+        prefs = pref;
+        WppCore.addListenerActivity((activity, type) -> {
+            if (type == WppCore.ActivityChangeState.ChangeType.STARTED) {
+                startedActivities.incrementAndGet();
+            } else if (startedActivities.updateAndGet(count -> Math.max(0, count - 1)) == 0) {
+                // the last visible activity stopped, WhatsApp went to background
+                scheduleOnIdle();
+            }
+        }, WppCore.ActivityChangeState.ChangeType.STARTED, WppCore.ActivityChangeState.ChangeType.ENDED);
+        scheduleOnIdle();
+    }
+
+    public static void scheduleOnIdle() {
+        if (!armed.compareAndSet(false, true)) return;
+        Looper.getMainLooper().getQueue().addIdleHandler(() -> {
+            armed.set(false);
+            var lastRun = WppCore.getPrivPrefs().getLong(LAST_RUN_KEY, 0);
+            if (System.currentTimeMillis() - lastRun >= RUN_INTERVAL) {
+                Utils.getExecutor().execute(DatabaseRetention::run);
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Runs pruning and compaction synchronously. Must not be called from the main thread.
+     */
+    public static void run() {
+        if (!running.compareAndSet(false, true)) return;
+        var priority = Process.getThreadPriority(Process.myTid());
+        try {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            var maxDays = Utils.tryParseInt(prefs.getString("db_retention_days", "0"), 0);
+            var maxRows = Utils.tryParseInt(prefs.getString("db_retention_max_rows", "0"), 0);
+            var cutoff = maxDays > 0 ? System.currentTimeMillis() - TimeUnit.DAYS.toMillis(maxDays) : 0;
+
+            var stats = new Stats();
+            var start = SystemClock.elapsedRealtime();
+
+            var history = MessageHistory.getInstance();
+            stats.rowsDeleted += history.prune(cutoff, maxRows);
+            stats.bytesReclaimed += compact(history.getWritableDatabase());
+
+            var delMessages = DelMessageStore.getInstance(Utils.getApplication());
+            stats.rowsDeleted += delMessages.prune(cutoff, maxRows);
+            stats.bytesReclaimed += compact(delMessages.getWritableDatabase());
+
+            var saveJobs = SaveJobStore.getInstance(Utils.getApplication());
+            stats.rowsDeleted += saveJobs.prune(cutoff, maxRows);
+            stats.bytesReclaimed += compact(saveJobs.getWritableDatabase());
+
+            stats.durationMs = SystemClock.elapsedRealtime() - start;
+            WppCore.getPrivPrefs().edit().putLong(LAST_RUN_KEY, System.currentTimeMillis()).apply();
+            XposedBridge.log("[DatabaseRetention] " + stats);
+        } catch (Exception e) {
+            XposedBridge.log(e);
+        } finally {
+            Process.setThreadPriority(priority);
+            running.set(false);
+        }
+    }
+
+    /**
+     * Deletes every row of {@code table} except the newest {@code maxRows} ones, ordered by _id.
+     */
+    static int capRows(SQLiteDatabase db, String table, int maxRows) {
+        var cutoff = cutoffId(db, table, maxRows);
+        if (cutoff < 0) return 0;
+        return db.delete(table, "_id <= ?", new String[]{String.valueOf(cutoff)});
+    }
+
+    /**
+     * Deletes whole groups of {@code table} rows sharing {@code groupColumn}, oldest first, until
+     * about {@code maxRows} rows are left. A group is only removed once its newest row falls out
+     * of the newest {@code maxRows}, so groups are never left half deleted.
+     */
+    static int capGroups(SQLiteDatabase db, String table, String groupColumn, int maxRows) {
+        var cutoff = cutoffId(db, table, maxRows);
+        if (cutoff < 0) return 0;
+        return db.delete(table, groupColumn + " IN (SELECT " + groupColumn + " FROM " + table + " GROUP BY " + groupColumn + " HAVING MAX(_id) <= ?)", new String[]{String.valueOf(cutoff)});
+    }
+
+    /**
+     * Returns the _id of the newest row outside the newest {@code maxRows}, or -1 when the table
+     * has no more rows than that.
+     */
+    private static long cutoffId(SQLiteDatabase db, String table, int maxRows) {
+        try (Cursor cursor = db.rawQuery("SELECT _id FROM " + table + " ORDER BY _id DESC LIMIT 1 OFFSET ?", new String[]{String.valueOf(maxRows)})) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        }
+    }
+
+    /**
+     * Requests incremental auto vacuum. This only takes effect for new databases, existing
+     * ones are converted by {@link #compact(SQLiteDatabase)} once enough of them is free space.
+     */
+    static void enableIncrementalVacuum(SQLiteDatabase db) {
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+    }
+
+    /**
+     * Returns free pages to the file system and reports the number of bytes reclaimed.
+     * <p>
+     * A full VACUUM rewrites the whole file and holds the shared connection that hooks write
+     * through, so a database without incremental vacuum is left alone until its free pages
+     * reach {@link #CONVERT_FREE_RATIO} of the file.
+     */
+    static long compact(SQLiteDatabase db) {
+        var pageSize = DatabaseUtils.longForQuery(db, "PRAGMA page_size", null);
+        var pagesBefore = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null);
+        var freePages = DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+        if (DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null) == 2) {
+            if (freePages > 0) db.execSQL("PRAGMA incremental_vacuum");
+        } else if (pagesBefore > 0 && freePages >= pagesBefore * CONVERT_FREE_RATIO) {
+            XposedBridge.log("[DatabaseRetention] Converting " + db.getPath() + " to incremental vacuum, " + freePages + " of " + pagesBefore + " pages free");
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+            db.execSQL("VACUUM");
+        }
+        var pagesAfter = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null);
+        return Math.max(0, pagesBefore - pagesAfter) * pageSize;
+    }
+
+    public static class Stats {
+        public int rowsDeleted;
+        public long bytesReclaimed;
+        public long durationMs;
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "rowsDeleted=" + rowsDeleted +
+                    ", bytesReclaimed=" + bytesReclaimed +
+                    ", durationMs=" + durationMs +
+                    '}';
+        }
+    }
+}
@@ -7,14 +7,17 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 
 public class DelMessageStore extends SQLiteOpenHelper {
     private static DelMessageStore mInstance;
 
     private DelMessageStore(@NonNull Context context) {
-        super(context, "delmessages.db", null, 4);
+        super(context, "delmessages.db", null, 5);
     }
 
     public static DelMessageStore getInstance(Context ctx) {
@@ -33,43 +36,107 @@ public class DelMessageStore extends SQLiteOpenHelper {
                 sqLiteDatabase.execSQL("ALTER TABLE delmessages ADD COLUMN timestamp INTEGER DEFAULT 0;");
             }
         }
+        if (oldVersion < 5) {
+            sqLiteDatabase.execSQL("ALTER TABLE delmessages ADD COLUMN text_data TEXT;");
+            MessageSearch.createIndex(sqLiteDatabase, "delmessages");
+        }
     }
 
     public void insertMessage(String jid, String msgid, long timestamp) {
-        try (SQLiteDatabase dbWrite = this.getWritableDatabase()) {
-            ContentValues values = new ContentValues();
-            values.put("jid", jid);
-            values.put("msgid", msgid);
-            values.put("timestamp", timestamp);
-            dbWrite.insert("delmessages", null, values);
+        insertMessage(jid, msgid, timestamp, null);
+    }
+
+    public void insertMessage(String jid, String msgid, long timestamp, @Nullable String text) {
+        // the connection is shared with the retention job, so it is never closed here
+        SQLiteDatabase dbWrite = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put("jid", jid);
+        values.put("msgid", msgid);
+        values.put("timestamp", timestamp);
+        values.put("text_data", text);
+        dbWrite.insert("delmessages", null, values);
+    }
+
+    /**
+     * Full-text search over the text of revoked messages, newest first.
+     *
+     * @param jid  stripped JID of the chat or null for every chat
+     * @param from minimum revoke timestamp, 0 for no lower bound
+     * @param to   maximum revoke timestamp, 0 for no upper bound
+     */
+    public List<MessageSearch.Hit> search(String matchQuery, @Nullable String jid, long from, long to, int limit) {
+        var selection = new StringBuilder("delmessages_fts MATCH ?");
+        var args = new ArrayList<String>();
+        args.add(matchQuery);
+        if (jid != null) {
+            selection.append(" AND d.jid = ?");
+            args.add(jid);
         }
+        if (from > 0) {
+            selection.append(" AND d.timestamp >= ?");
+            args.add(String.valueOf(from));
+        }
+        if (to > 0) {
+            selection.append(" AND d.timestamp <= ?");
+            args.add(String.valueOf(to));
+        }
+        args.add(String.valueOf(limit));
+        var sql = "SELECT d.jid, d.msgid, d.text_data, d.timestamp FROM delmessages_fts JOIN delmessages d ON d._id = delmessages_fts.docid WHERE " + selection + " ORDER BY d.timestamp DESC LIMIT ?";
+        var hits = new ArrayList<MessageSearch.Hit>();
+        SQLiteDatabase dbReader = this.getReadableDatabase();
+        try (Cursor cursor = dbReader.rawQuery(sql, args.toArray(new String[0]))) {
+            while (cursor.moveToNext()) {
+                hits.add(new MessageSearch.Hit(MessageSearch.Source.DELETED, cursor.getString(0), -1, cursor.getString(1), cursor.getString(2), cursor.getLong(3)));
+            }
+        }
+        return hits;
     }
 
     public HashSet<String> getMessagesByJid(String jid) {
         SQLiteDatabase dbReader = this.getReadableDatabase();
-        Cursor query = dbReader.query("delmessages", new String[]{"_id", "jid", "msgid"}, "jid=?", new String[]{jid}, null, null, null);
         HashSet<String> messages = new HashSet<>();
-        try {
+        try (Cursor query = dbReader.query("delmessages", new String[]{"_id", "jid", "msgid"}, "jid=?", new String[]{jid}, null, null, null)) {
             if (query.moveToFirst()) {
                 do {
                     messages.add(query.getString(query.getColumnIndexOrThrow("msgid")));
                 } while (query.moveToNext());
             }
-        } finally {
-            query.close();
-            dbReader.close();
         }
         return messages;
     }
 
+    /**
+     * Removes revoked message records older than {@code cutoff} and keeps at most the newest
+     * {@code maxRows} rows.
+     *
+     * @return the number of deleted rows
+     */
+    public int prune(long cutoff, int maxRows) {
+        SQLiteDatabase dbWrite = this.getWritableDatabase();
+        int deleted = 0;
+        if (cutoff > 0) {
+            deleted += dbWrite.delete("delmessages", "timestamp > 0 AND timestamp < ?", new String[]{String.valueOf(cutoff)});
+        }
+        if (maxRows > 0) {
+            deleted += DatabaseRetention.capRows(dbWrite, "delmessages", maxRows);
+        }
+        return deleted;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        DatabaseRetention.enableIncrementalVacuum(db);
+    }
+
     @Override
     public void onCreate(SQLiteDatabase sqLiteDatabase) {
-        sqLiteDatabase.execSQL("CREATE TABLE IF NOT EXISTS delmessages (_id INTEGER PRIMARY KEY AUTOINCREMENT, jid TEXT, msgid TEXT, timestamp INTEGER DEFAULT 0, UNIQUE(jid, msgid))");
+        sqLiteDatabase.execSQL("CREATE TABLE IF NOT EXISTS delmessages (_id INTEGER PRIMARY KEY AUTOINCREMENT, jid TEXT, msgid TEXT, timestamp INTEGER DEFAULT 0, text_data TEXT, UNIQUE(jid, msgid))");
+        MessageSearch.createIndex(sqLiteDatabase, "delmessages");
     }
 
     public long getTimestampByMessageId(String msgid) {
         SQLiteDatabase dbReader = this.getReadableDatabase();
-        try (dbReader; Cursor query = dbReader.query("delmessages", new String[]{"timestamp"}, "msgid=?", new String[]{msgid}, null, null, null)) {
+        try (Cursor query = dbReader.query("delmessages", new String[]{"timestamp"}, "msgid=?", new String[]{msgid}, null, null, null)) {
             if (query.moveToFirst()) {
                 return query.getLong(query.getColumnIndexOrThrow("timestamp"));
             }
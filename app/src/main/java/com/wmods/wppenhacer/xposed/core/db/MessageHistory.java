@@ -3,8 +3,11 @@ package com.wmods.wppenhacer.xposed.core.db;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
 import android.util.LruCache;
 
 import androidx.annotation.Nullable;
@@ -25,6 +28,13 @@ import lombok.RequiredArgsConstructor;
 public class MessageHistory extends SQLiteOpenHelper {
     private static MessageHistory mInstance;
     private SQLiteDatabase dbWrite;
+    private SQLiteStatement upsertSeenStatement;
+
+    /**
+     * The original text of a message is stored with editTimestamp 0. It was current until the
+     * first edit, so that edit's time stands in for it when filtering and sorting.
+     */
+    private static final String EFFECTIVE_TIME = "(CASE WHEN h.editTimestamp > 0 THEN h.editTimestamp ELSE (SELECT MIN(e.editTimestamp) FROM MessageHistory e WHERE e.row_id = h.row_id AND e.editTimestamp > 0) END)";
 
     private static final int MESSAGE_CACHE_SIZE = 100;
     private static final int SEEN_MESSAGE_CACHE_SIZE = 200;
@@ -39,7 +49,7 @@ public class MessageHistory extends SQLiteOpenHelper {
     }
 
     public MessageHistory(Context context) {
-        super(context, "MessageHistory.db", null, 2);
+        super(context, "MessageHistory.db", null, 4);
         messagesCache = new LruCache<>(MESSAGE_CACHE_SIZE);
         seenMessageCache = new LruCache<>(SEEN_MESSAGE_CACHE_SIZE);
         seenMessagesListCache = new LruCache<>(SEEN_MESSAGES_LIST_CACHE_SIZE);
@@ -48,17 +58,27 @@ public class MessageHistory extends SQLiteOpenHelper {
     public static MessageHistory getInstance() {
         synchronized (MessageHistory.class) {
             if (mInstance == null || !mInstance.getReadableDatabase().isOpen()) {
-                mInstance = new MessageHistory(Utils.getApplication());
-                mInstance.dbWrite = mInstance.getWritableDatabase();
+                mInstance = open(Utils.getApplication());
             }
         }
         return mInstance;
     }
 
+    static MessageHistory open(Context context) {
+        var history = new MessageHistory(context);
+        history.dbWrite = history.getWritableDatabase();
+        return history;
+    }
+
     public final void insertMessage(long id, String message, long timestamp) {
+        insertMessage(id, null, message, timestamp);
+    }
+
+    public final void insertMessage(long id, @Nullable String jid, String message, long timestamp) {
         synchronized (this) {
             ContentValues contentValues0 = new ContentValues();
             contentValues0.put("row_id", id);
+            contentValues0.put("jid", jid);
             contentValues0.put("text_data", message);
             contentValues0.put("editTimestamp", timestamp);
             dbWrite.insert("MessageHistory", null, contentValues0);
@@ -96,16 +116,45 @@ public class MessageHistory extends SQLiteOpenHelper {
         return messages;
     }
 
+    public int countMessages(long rowId) {
+        return (int) DatabaseUtils.queryNumEntries(dbWrite, "MessageHistory", "row_id=?", new String[]{String.valueOf(rowId)});
+    }
+
+    /**
+     * Loads one window of the edit history of a message in insertion order, so viewers can
+     * page through long histories without materializing all of them.
+     */
+    public List<MessageItem> getMessagesPage(long rowId, int offset, int limit) {
+        var messages = new ArrayList<MessageItem>(limit);
+        try (Cursor history = dbWrite.rawQuery("SELECT text_data, editTimestamp FROM MessageHistory WHERE row_id=? ORDER BY _id LIMIT ? OFFSET ?", new String[]{String.valueOf(rowId), String.valueOf(limit), String.valueOf(offset)})) {
+            while (history.moveToNext()) {
+                messages.add(new MessageItem(rowId, history.getString(0), history.getLong(1)));
+            }
+        }
+        return messages;
+    }
+
     public final void insertHideSeenMessage(String jid, String message_id, MessageType type, boolean viewed) {
         synchronized (this) {
-            if (updateViewedMessage(jid, message_id, type, viewed)) {
-                return;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                // SQLite 3.24+ supports native upserts backed by the unique index
+                if (upsertSeenStatement == null) {
+                    upsertSeenStatement = dbWrite.compileStatement("INSERT INTO hide_seen_messages(jid, message_id, type, viewed) VALUES(?, ?, ?, ?) ON CONFLICT(jid, message_id, type) DO UPDATE SET viewed=excluded.viewed");
+                }
+                upsertSeenStatement.bindString(1, jid);
+                upsertSeenStatement.bindString(2, message_id);
+                upsertSeenStatement.bindLong(3, type.ordinal());
+                upsertSeenStatement.bindLong(4, viewed ? 1 : 0);
+                upsertSeenStatement.executeInsert();
+                upsertSeenStatement.clearBindings();
+            } else if (!updateViewedMessage(jid, message_id, type, viewed)) {
+                ContentValues content = new ContentValues();
+                content.put("jid", jid);
+                content.put("message_id", message_id);
+                content.put("type", type.ordinal());
+                content.put("viewed", viewed ? 1 : 0);
+                dbWrite.insertWithOnConflict("hide_seen_messages", null, content, SQLiteDatabase.CONFLICT_IGNORE);
             }
-            ContentValues content = new ContentValues();
-            content.put("jid", jid);
-            content.put("message_id", message_id);
-            content.put("type", type.ordinal());
-            dbWrite.insert("hide_seen_messages", null, content);
 
             // Invalidate caches
             String cacheKey = createSeenMessageCacheKey(jid, message_id, type);
@@ -115,15 +164,11 @@ public class MessageHistory extends SQLiteOpenHelper {
     }
 
     public boolean updateViewedMessage(String jid, String message_id, MessageType type, boolean viewed) {
-        Cursor cursor = dbWrite.query("hide_seen_messages", new String[]{"_id"}, "jid=? AND message_id=? AND type =?", new String[]{jid, message_id, String.valueOf(type.ordinal())}, null, null, null);
-        if (!cursor.moveToFirst()) {
-            cursor.close();
-            return false;
-        }
         synchronized (this) {
             ContentValues content = new ContentValues();
             content.put("viewed", viewed ? 1 : 0);
-            dbWrite.update("hide_seen_messages", content, "_id=?", new String[]{cursor.getString(cursor.getColumnIndexOrThrow("_id"))});
+            var updated = dbWrite.update("hide_seen_messages", content, "jid=? AND message_id=? AND type=?", new String[]{jid, message_id, String.valueOf(type.ordinal())});
+            if (updated == 0) return false;
 
             // Update cache or invalidate
             String cacheKey = createSeenMessageCacheKey(jid, message_id, type);
@@ -132,9 +177,8 @@ public class MessageHistory extends SQLiteOpenHelper {
                 seenMessageCache.remove(cacheKey);
             }
             invalidateSeenMessagesListCache(jid, type);
+            return true;
         }
-        cursor.close();
-        return true;
     }
 
     public MessageSeenItem getHideSeenMessage(String jid, String message_id, MessageType type) {
@@ -191,10 +235,74 @@ public class MessageHistory extends SQLiteOpenHelper {
         return messages;
     }
 
+    /**
+     * Full-text search over every captured edit, newest first. Original texts are dated by the
+     * first edit that replaced them.
+     *
+     * @param jid  raw JID of the chat or null for every chat
+     * @param from minimum edit timestamp, 0 for no lower bound
+     * @param to   maximum edit timestamp, 0 for no upper bound
+     */
+    public List<MessageSearch.Hit> search(String matchQuery, @Nullable String jid, long from, long to, int limit) {
+        var selection = new StringBuilder("MessageHistory_fts MATCH ?");
+        var args = new ArrayList<String>();
+        args.add(matchQuery);
+        if (jid != null) {
+            selection.append(" AND h.jid = ?");
+            args.add(jid);
+        }
+        if (from > 0) {
+            selection.append(" AND ").append(EFFECTIVE_TIME).append(" >= ?");
+            args.add(String.valueOf(from));
+        }
+        if (to > 0) {
+            selection.append(" AND ").append(EFFECTIVE_TIME).append(" <= ?");
+            args.add(String.valueOf(to));
+        }
+        args.add(String.valueOf(limit));
+        var sql = "SELECT h.row_id, h.jid, h.text_data, " + EFFECTIVE_TIME + " AS time FROM MessageHistory_fts JOIN MessageHistory h ON h._id = MessageHistory_fts.docid WHERE " + selection + " ORDER BY time DESC LIMIT ?";
+        var hits = new ArrayList<MessageSearch.Hit>();
+        try (Cursor cursor = dbWrite.rawQuery(sql, args.toArray(new String[0]))) {
+            while (cursor.moveToNext()) {
+                hits.add(new MessageSearch.Hit(MessageSearch.Source.EDIT_HISTORY, cursor.getString(1), cursor.getLong(0), null, cursor.getString(2), cursor.getLong(3)));
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Removes edit histories whose newest edit is older than {@code cutoff} and caps the
+     * history and hide-seen tables to about their newest {@code maxRows} rows.
+     *
+     * @return the number of deleted rows
+     */
+    public int prune(long cutoff, int maxRows) {
+        synchronized (this) {
+            int deleted = 0;
+            if (cutoff > 0) {
+                deleted += dbWrite.delete("MessageHistory", "row_id IN (SELECT row_id FROM MessageHistory GROUP BY row_id HAVING MAX(editTimestamp) < ?)", new String[]{String.valueOf(cutoff)});
+            }
+            if (maxRows > 0) {
+                // an edit history is only useful with its original row, so drop histories whole
+                deleted += DatabaseRetention.capGroups(dbWrite, "MessageHistory", "row_id", maxRows);
+                deleted += DatabaseRetention.capRows(dbWrite, "hide_seen_messages", maxRows);
+            }
+            if (deleted > 0) clearCaches();
+            return deleted;
+        }
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        DatabaseRetention.enableIncrementalVacuum(db);
+    }
+
     @Override
     public void onCreate(SQLiteDatabase sqLiteDatabase) {
-        sqLiteDatabase.execSQL("create table MessageHistory(_id INTEGER PRIMARY KEY AUTOINCREMENT, row_id INTEGER NOT NULL, text_data TEXT NOT NULL, editTimestamp BIGINT DEFAULT 0 );");
+        sqLiteDatabase.execSQL("create table MessageHistory(_id INTEGER PRIMARY KEY AUTOINCREMENT, row_id INTEGER NOT NULL, text_data TEXT NOT NULL, editTimestamp BIGINT DEFAULT 0, jid TEXT);");
         sqLiteDatabase.execSQL("create table hide_seen_messages(_id INTEGER PRIMARY KEY AUTOINCREMENT, jid TEXT NOT NULL, message_id TEXT NOT NULL,type INT NOT NULL, viewed INT DEFAULT 0);");
+        createIndexes(sqLiteDatabase);
+        MessageSearch.createIndex(sqLiteDatabase, "MessageHistory");
     }
 
     @Override
@@ -202,6 +310,21 @@ public class MessageHistory extends SQLiteOpenHelper {
         if (oldVersion < 2) {
             sqLiteDatabase.execSQL("create table hide_seen_messages(_id INTEGER PRIMARY KEY AUTOINCREMENT, jid TEXT NOT NULL, message_id TEXT NOT NULL,type INT NOT NULL, viewed INT DEFAULT 0);");
         }
+        if (oldVersion < 3) {
+            // Older versions could store the same message more than once, keep only the newest row
+            sqLiteDatabase.execSQL("DELETE FROM hide_seen_messages WHERE _id NOT IN (SELECT MAX(_id) FROM hide_seen_messages GROUP BY jid, message_id, type);");
+            createIndexes(sqLiteDatabase);
+        }
+        if (oldVersion < 4) {
+            sqLiteDatabase.execSQL("ALTER TABLE MessageHistory ADD COLUMN jid TEXT;");
+            MessageSearch.createIndex(sqLiteDatabase, "MessageHistory");
+            MessageSearch.rebuildIndex(sqLiteDatabase, "MessageHistory");
+        }
+    }
+
+    private static void createIndexes(SQLiteDatabase sqLiteDatabase) {
+        sqLiteDatabase.execSQL("CREATE INDEX IF NOT EXISTS idx_message_history_row_id ON MessageHistory(row_id);");
+        sqLiteDatabase.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_hide_seen_messages_key ON hide_seen_messages(jid, message_id, type);");
     }
 
     private String createSeenMessageCacheKey(String jid, String message_id, MessageType type) {
@@ -0,0 +1,101 @@
+package com.wmods.wppenhacer.xposed.core.db;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.wmods.wppenhacer.xposed.core.WppCore;
+import com.wmods.wppenhacer.xposed.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Full-text search over captured edit history (MessageHistory.db) and revoked messages
+ * (delmessages.db). Each store keeps an external-content FTS4 table named {@code <table>_fts}
+ * that triggers update on every insert and delete.
+ */
+public class MessageSearch {
+
+    public enum Source {
+        EDIT_HISTORY,
+        DELETED
+    }
+
+    /**
+     * Searches both stores and returns the newest hits first.
+     *
+     * @param query  free text, every word is matched as a prefix
+     * @param rawJid raw JID of the chat or null for every chat
+     * @param from   minimum timestamp, 0 for no lower bound
+     * @param to     maximum timestamp, 0 for no upper bound
+     */
+    @NonNull
+    public static List<Hit> search(String query, @Nullable String rawJid, long from, long to, int limit) {
+        var hits = new ArrayList<Hit>();
+        var matchQuery = toMatchQuery(query);
+        if (matchQuery == null) return hits;
+        try {
+            hits.addAll(MessageHistory.getInstance().search(matchQuery, rawJid, from, to, limit));
+        } catch (Exception e) {
+            XposedBridge.log(e);
+        }
+        try {
+            var strippedJid = rawJid == null ? null : WppCore.stripJID(rawJid);
+            hits.addAll(DelMessageStore.getInstance(Utils.getApplication()).search(matchQuery, strippedJid, from, to, limit));
+        } catch (Exception e) {
+            XposedBridge.log(e);
+        }
+        hits.sort(Comparator.comparingLong((Hit hit) -> hit.timestamp).reversed());
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * Quotes every word of the user input so FTS operators in it are matched literally.
+     */
+    @Nullable
+    static String toMatchQuery(String query) {
+        if (TextUtils.isEmpty(query)) return null;
+        var terms = new ArrayList<String>();
+        for (var word : query.trim().split("\\s+")) {
+            if (word.isEmpty()) continue;
+            terms.add("\"" + word.replace("\"", "\"\"") + "*\"");
+        }
+        return terms.isEmpty() ? null : String.join(" ", terms);
+    }
+
+    static void createIndex(SQLiteDatabase db, String table) {
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + table + "_fts USING fts4(content=\"" + table + "\", text_data)");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + table + "_fts_ai AFTER INSERT ON " + table + " BEGIN INSERT INTO " + table + "_fts(docid, text_data) VALUES (new._id, new.text_data); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + table + "_fts_bd BEFORE DELETE ON " + table + " BEGIN DELETE FROM " + table + "_fts WHERE docid = old._id; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + table + "_fts_bu BEFORE UPDATE OF text_data ON " + table + " BEGIN DELETE FROM " + table + "_fts WHERE docid = old._id; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + table + "_fts_au AFTER UPDATE OF text_data ON " + table + " BEGIN INSERT INTO " + table + "_fts(docid, text_data) VALUES (new._id, new.text_data); END");
+    }
+
+    static void rebuildIndex(SQLiteDatabase db, String table) {
+        db.execSQL("INSERT INTO " + table + "_fts(" + table + "_fts) VALUES ('rebuild')");
+    }
+
+    public static class Hit {
+        public final Source source;
+        public final String jid;
+        public final long rowId;
+        public final String messageId;
+        public final String text;
+        public final long timestamp;
+
+        public Hit(Source source, String jid, long rowId, String messageId, String text, long timestamp) {
+            this.source = source;
+            this.jid = jid;
+            this.rowId = rowId;
+            this.messageId = messageId;
+            this.text = text;
+            this.timestamp = timestamp;
+        }
+    }
+}
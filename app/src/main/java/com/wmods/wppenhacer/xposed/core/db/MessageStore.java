@@ -1,6 +1,7 @@
 package com.wmods.wppenhacer.xposed.core.db;
 
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 
 import com.wmods.wppenhacer.xposed.utils.Utils;
@@ -101,6 +102,24 @@ public class MessageStore {
         return null;
     }
 
+    /**
+     * Returns the base64 SHA-256 WhatsApp recorded for the decrypted media of a message.
+     */
+    public String getMediaHashFromID(long id) {
+        if (sqLiteDatabase == null) return null;
+        String[] columns = new String[]{"file_hash"};
+        String selection = "message_row_id=?";
+        String[] selectionArgs = new String[]{String.valueOf(id)};
+        try (Cursor cursor = sqLiteDatabase.query("message_media", columns, selection, selectionArgs, null, null, null)) {
+            if (cursor.moveToFirst()) {
+                return cursor.getString(0);
+            }
+        } catch (Exception e) {
+            XposedBridge.log(e);
+        }
+        return null;
+    }
+
     public String getCurrentMessageByID(long row_id) {
         if (sqLiteDatabase == null) return "";
         String[] columns = new String[]{"text_data"};
@@ -167,6 +186,60 @@ public class MessageStore {
         return list;
     }
 
+    /**
+     * Counts unread, non-archived and unlocked chats split by server in a single aggregate query.
+     *
+     * @return {contacts, groups}
+     */
+    public int[] getUnreadChatCounts() {
+        var counts = new int[2];
+        if (sqLiteDatabase == null) return counts;
+        var sql = "SELECT SUM(CASE WHEN j.server = 'g.us' THEN 0 ELSE 1 END), SUM(CASE WHEN j.server = 'g.us' THEN 1 ELSE 0 END)" +
+                " FROM chat c JOIN jid j ON j._id = c.jid_row_id" +
+                " WHERE c.unseen_message_count != 0 AND j.server IS NOT NULL" +
+                " AND IFNULL(c.archived, 0) = 0 AND IFNULL(c.chat_lock, 0) = 0 AND IFNULL(c.group_type, 0) IN (0, 6)";
+        try (Cursor cursor = sqLiteDatabase.rawQuery(sql, null)) {
+            if (cursor.moveToFirst()) {
+                counts[0] = cursor.getInt(0);
+                counts[1] = cursor.getInt(1);
+            }
+        } catch (Exception e) {
+            XposedBridge.log(e);
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the raw JIDs of the most recently active chats.
+     */
+    public List<String> getRecentChatJids(int limit) {
+        var list = new ArrayList<String>();
+        if (sqLiteDatabase == null) return list;
+        var sql = "SELECT j.raw_string FROM chat c JOIN jid j ON j._id = c.jid_row_id ORDER BY c.sort_timestamp DESC LIMIT ?";
+        try (Cursor cursor = sqLiteDatabase.rawQuery(sql, new String[]{String.valueOf(limit)})) {
+            while (cursor.moveToNext()) {
+                var rawJid = cursor.getString(0);
+                if (rawJid != null) list.add(rawJid);
+            }
+        } catch (Exception e) {
+            XposedBridge.log(e);
+        }
+        return list;
+    }
+
+    /**
+     * Returns SQLite's data_version, which changes whenever another connection (WhatsApp itself)
+     * commits to msgstore.db. Reading it does not touch the database file.
+     */
+    public long getDataVersion() {
+        if (sqLiteDatabase == null) return -1;
+        try {
+            return DatabaseUtils.longForQuery(sqLiteDatabase, "PRAGMA data_version", null);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
     public synchronized void executeSQL(String sql) {
         try {
             if (sqLiteDatabase == null) return;
@@ -0,0 +1,133 @@
+package com.wmods.wppenhacer.xposed.core.db;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.wmods.wppenhacer.xposed.core.download.SaveJob;
+import com.wmods.wppenhacer.xposed.core.download.SaveQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SaveJobStore extends SQLiteOpenHelper implements SaveQueue.Store {
+    // saved_media only speeds up repeated saves, so it is capped even when retention is off
+    static final int MAX_SAVED_MEDIA = 10_000;
+    private static SaveJobStore mInstance;
+
+    private SaveJobStore(@NonNull Context context) {
+        super(context, "savejobs.db", null, 2);
+    }
+
+    public static SaveJobStore getInstance(Context ctx) {
+        synchronized (SaveJobStore.class) {
+            if (mInstance == null) {
+                mInstance = new SaveJobStore(ctx);
+            }
+        }
+        return mInstance;
+    }
+
+    @NonNull
+    @Override
+    public List<SaveJob> loadAll() {
+        var jobs = new ArrayList<SaveJob>();
+        SQLiteDatabase dbReader = this.getReadableDatabase();
+        try (var cursor = dbReader.query("savejobs", new String[]{"source", "size", "mtime", "dest_folder", "name", "priority", "created_at", "attempts", "hash"}, null, null, null, null, "created_at")) {
+            while (cursor.moveToNext()) {
+                jobs.add(new SaveJob(cursor.getString(0), cursor.getLong(1), cursor.getLong(2), cursor.getString(3), cursor.getString(4), cursor.getInt(5), cursor.getLong(6), cursor.getInt(7), cursor.getString(8)));
+            }
+        }
+        return jobs;
+    }
+
+    @Override
+    public void put(@NonNull SaveJob job) {
+        ContentValues values = new ContentValues();
+        values.put("job_key", job.key);
+        values.put("source", job.sourcePath);
+        values.put("size", job.size);
+        values.put("mtime", job.lastModified);
+        values.put("dest_folder", job.destFolder);
+        values.put("name", job.name);
+        values.put("priority", job.priority);
+        values.put("created_at", job.createdAt);
+        values.put("attempts", job.getAttempts());
+        values.put("hash", job.hash);
+        this.getWritableDatabase().insertWithOnConflict("savejobs", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    @Override
+    public void remove(@NonNull String key) {
+        this.getWritableDatabase().delete("savejobs", "job_key = ?", new String[]{key});
+    }
+
+    /**
+     * Returns the path an earlier save of the content with {@code hash} was written to.
+     */
+    @Nullable
+    public String findSavedPath(@NonNull String hash) {
+        SQLiteDatabase dbReader = this.getReadableDatabase();
+        try (var cursor = dbReader.query("saved_media", new String[]{"path"}, "hash = ?", new String[]{hash}, null, null, null)) {
+            if (cursor.moveToFirst()) {
+                return cursor.getString(0);
+            }
+        }
+        return null;
+    }
+
+    public void putSavedPath(@NonNull String hash, @NonNull String path, long size) {
+        ContentValues values = new ContentValues();
+        values.put("hash", hash);
+        values.put("path", path);
+        values.put("size", size);
+        values.put("saved_at", System.currentTimeMillis());
+        this.getWritableDatabase().insertWithOnConflict("saved_media", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    public void removeSavedPath(@NonNull String hash) {
+        this.getWritableDatabase().delete("saved_media", "hash = ?", new String[]{hash});
+    }
+
+    /**
+     * Forgets saves recorded before {@code cutoff} and keeps at most {@code maxRows} of the newest,
+     * never more than {@link #MAX_SAVED_MEDIA}. Only the index is pruned, the saved files stay.
+     */
+    public int prune(long cutoff, int maxRows) {
+        SQLiteDatabase dbWrite = this.getWritableDatabase();
+        int deleted = 0;
+        if (cutoff > 0) {
+            deleted += dbWrite.delete("saved_media", "saved_at < ?", new String[]{String.valueOf(cutoff)});
+        }
+        var limit = maxRows > 0 ? Math.min(maxRows, MAX_SAVED_MEDIA) : MAX_SAVED_MEDIA;
+        deleted += dbWrite.delete("saved_media", "rowid IN (SELECT rowid FROM saved_media ORDER BY saved_at DESC LIMIT -1 OFFSET ?)", new String[]{String.valueOf(limit)});
+        return deleted;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        DatabaseRetention.enableIncrementalVacuum(db);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase sqLiteDatabase) {
+        sqLiteDatabase.execSQL("CREATE TABLE IF NOT EXISTS savejobs (job_key TEXT PRIMARY KEY, source TEXT NOT NULL, size INTEGER, mtime INTEGER, dest_folder TEXT NOT NULL, name TEXT NOT NULL, priority INTEGER DEFAULT 0, created_at INTEGER, attempts INTEGER DEFAULT 0, hash TEXT)");
+        createSavedMedia(sqLiteDatabase);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            sqLiteDatabase.execSQL("ALTER TABLE savejobs ADD COLUMN hash TEXT;");
+            createSavedMedia(sqLiteDatabase);
+        }
+    }
+
+    private static void createSavedMedia(SQLiteDatabase sqLiteDatabase) {
+        sqLiteDatabase.execSQL("CREATE TABLE IF NOT EXISTS saved_media (hash TEXT PRIMARY KEY, path TEXT NOT NULL, size INTEGER, saved_at INTEGER)");
+    }
+}
@@ -0,0 +1,279 @@
+package com.wmods.wppenhacer.xposed.core.download;
+
+import android.text.TextUtils;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.wmods.wppenhacer.xposed.bridge.FileStat;
+import com.wmods.wppenhacer.xposed.bridge.WaeIIFace;
+import com.wmods.wppenhacer.xposed.core.WppCore;
+import com.wmods.wppenhacer.xposed.core.db.MessageStore;
+import com.wmods.wppenhacer.xposed.core.db.SaveJobStore;
+import com.wmods.wppenhacer.xposed.utils.ResId;
+import com.wmods.wppenhacer.xposed.utils.Utils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Entry point used by the download features. Saves are queued on a background thread, so
+ * callers on the UI thread never touch the disk, and jobs interrupted by a process restart are
+ * resumed by {@link #init()}. Queueing has its own thread, so a new save is accepted right away
+ * even while both copy threads are busy.
+ */
+public class MediaSaver {
+
+    public static final int PRIORITY_BULK = 0;
+    public static final int PRIORITY_USER = 10;
+    private static final int MAX_CONCURRENT = 2;
+    // from this size on, usually videos, a file is copied on its own with progress and cancellation
+    private static final long LARGE_FILE_SIZE = 32L * 1024 * 1024;
+
+    private static final ScheduledExecutorService executor = Executors.newScheduledThreadPool(MAX_CONCURRENT);
+    private static final ExecutorService enqueueExecutor = Executors.newSingleThreadExecutor();
+    private static volatile SaveQueue queue;
+    private static SaveJobStore store;
+
+    public static void init() {
+        enqueueExecutor.execute(() -> {
+            try {
+                getQueue().restore();
+            } catch (Exception e) {
+                XposedBridge.log(e);
+            }
+        });
+    }
+
+    /**
+     * Queues a copy of {@code file} into {@code destFolder} and shows the usual toast once it is done.
+     */
+    public static void save(@Nullable File file, @NonNull String destFolder, @NonNull String name, int priority) {
+        save(file, destFolder, name, priority, -1, MediaSaver::showResult);
+    }
+
+    /**
+     * Same as {@link #save(File, String, String, int)} for message media. Its file_hash is read
+     * from msgstore, so an earlier save of the same content is reused instead of copied again.
+     */
+    public static void save(@Nullable File file, @NonNull String destFolder, @NonNull String name, int priority, long messageRowId) {
+        save(file, destFolder, name, priority, messageRowId, MediaSaver::showResult);
+    }
+
+    public static void save(@Nullable File file, @NonNull String destFolder, @NonNull String name, int priority, long messageRowId, @NonNull SaveQueue.Listener listener) {
+        if (file == null) {
+            listener.onFinished(null, "File not found or is null");
+            return;
+        }
+        enqueueExecutor.execute(() -> {
+            try {
+                var hash = messageRowId > 0 ? MessageStore.getInstance().getMediaHashFromID(messageRowId) : null;
+                getQueue().enqueue(file.getAbsolutePath(), destFolder, name, priority, TextUtils.isEmpty(hash) ? null : hash, listener);
+            } catch (Exception e) {
+                XposedBridge.log(e);
+                listener.onFinished(null, String.valueOf(e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Queues several files at {@link #PRIORITY_BULK}, behind anything the user saves one by one,
+     * and shows a single toast once all of them are done. The lists are parallel, a row id of 0
+     * or less means the file is not matched against earlier saves.
+     */
+    public static void saveAll(@NonNull List<File> files, @NonNull List<String> destFolders, @NonNull List<String> names, @NonNull long[] messageRowIds) {
+        if (files.isEmpty()) return;
+        var remaining = new AtomicInteger(files.size());
+        var failed = new AtomicInteger();
+        var folders = new LinkedHashSet<String>();
+        SaveQueue.Listener listener = (job, error) -> {
+            synchronized (folders) {
+                if (TextUtils.isEmpty(error) && job != null) {
+                    var savedPath = job.getSavedPath();
+                    folders.add(savedPath == null ? job.destFolder : new File(savedPath).getParent());
+                } else {
+                    failed.incrementAndGet();
+                }
+            }
+            if (remaining.decrementAndGet() > 0) return;
+            if (failed.get() == 0) {
+                Utils.showToast(Utils.getApplication().getString(ResId.string.saved_to) + String.join(", ", folders), Toast.LENGTH_SHORT);
+            } else {
+                Utils.showToast(Utils.getApplication().getString(ResId.string.error_when_saving_try_again) + ": " + failed.get() + "/" + files.size(), Toast.LENGTH_SHORT);
+            }
+        };
+        for (int i = 0; i < files.size(); i++) {
+            save(files.get(i), destFolders.get(i), names.get(i), PRIORITY_BULK, messageRowIds[i], listener);
+        }
+    }
+
+    private static SaveQueue getQueue() {
+        if (queue == null) {
+            synchronized (MediaSaver.class) {
+                if (queue == null) {
+                    store = SaveJobStore.getInstance(Utils.getApplication());
+                    queue = new SaveQueue(store, MediaSaver::stat, MediaSaver::copy, executor, executor, MAX_CONCURRENT, MediaSaver::showResult);
+                }
+            }
+        }
+        return queue;
+    }
+
+    @Nullable
+    private static long[] stat(@NonNull String path) {
+        var file = new File(path);
+        if (!file.isFile()) return null;
+        return new long[]{file.length(), file.lastModified()};
+    }
+
+    /**
+     * Cancels a queued or running save of {@code file}, which is then reported with
+     * {@link SaveQueue#CANCELLED}.
+     */
+    public static void cancel(@NonNull File file) {
+        enqueueExecutor.execute(() -> getQueue().cancel(SaveJob.keyOf(file.getAbsolutePath(), file.length(), file.lastModified())));
+    }
+
+    /**
+     * Copies a batch of jobs. Outside lite mode the batch runs inside {@link WppCore#withBridge},
+     * so a copy thread never waits for the connection. Earlier copies of the whole batch are then
+     * checked with one statFiles call and the remaining small files are sent with one copyFiles
+     * call. Large files, and every file in lite mode, are copied in this process so progress
+     * lands in {@link SaveJob#getCopied()} and {@link #cancel(File)} stops them between chunks.
+     */
+    @NonNull
+    private static CompletableFuture<List<SaveQueue.Result>> copy(@NonNull List<SaveJob> jobs) {
+        var results = new SaveQueue.Result[jobs.size()];
+        if (Utils.xprefs.getBoolean("lite_mode", false)) {
+            // lite mode writes through document URIs, which cannot be checked for an earlier copy cheaply
+            for (int i = 0; i < results.length; i++) {
+                results[i] = copyWithProgress(null, jobs.get(i));
+            }
+            return CompletableFuture.completedFuture(Arrays.asList(results));
+        }
+        var connect = false;
+        for (int i = 0; i < results.length; i++) {
+            var job = jobs.get(i);
+            if (job.cancellation.isCanceled()) {
+                results[i] = SaveQueue.Result.failed(SaveQueue.CANCELLED);
+            } else if (job.getAttempts() > 0 && !WppCore.isBridgeAlive()) {
+                // the first attempt goes through so the user sees the reconnect dialog, retries wait quietly
+                results[i] = SaveQueue.Result.retry("Failed connect to Bridge");
+            } else {
+                connect = true;
+            }
+        }
+        if (!connect) return CompletableFuture.completedFuture(Arrays.asList(results));
+        return WppCore.withBridge(bridge -> copy(bridge, jobs, results)).handle((v, e) -> {
+            if (e != null) {
+                // the connection failed or dropped mid batch, whatever is left is tried again later
+                var cause = e.getCause() != null ? e.getCause() : e;
+                for (int i = 0; i < results.length; i++) {
+                    if (results[i] == null) results[i] = SaveQueue.Result.retry(cause.getMessage());
+                }
+            }
+            return Arrays.asList(results);
+        });
+    }
+
+    private static void copy(@NonNull WaeIIFace bridge, @NonNull List<SaveJob> jobs, @NonNull SaveQueue.Result[] results) {
+        var hashes = new String[results.length];
+        var savedPaths = new String[results.length];
+        var checks = new ArrayList<Integer>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) continue;
+            // only WhatsApp's own file_hash is used, hashing the file here would read it twice
+            hashes[i] = jobs.get(i).hash;
+            if (hashes[i] == null) continue;
+            savedPaths[i] = store.findSavedPath(hashes[i]);
+            if (savedPaths[i] != null) checks.add(i);
+        }
+        if (!checks.isEmpty()) {
+            var paths = new String[checks.size()];
+            for (int c = 0; c < paths.length; c++) paths[c] = savedPaths[checks.get(c)];
+            var stats = statFiles(bridge, paths);
+            // without an answer from the bridge the entries are kept and the files copied again
+            for (int c = 0; stats != null && c < stats.length; c++) {
+                int i = checks.get(c);
+                var stat = stats[c];
+                if (stat.exists() && !stat.isDirectory() && stat.size == jobs.get(i).size) {
+                    results[i] = SaveQueue.Result.saved(savedPaths[i]);
+                } else {
+                    store.removeSavedPath(hashes[i]);
+                }
+            }
+        }
+        var indexes = new ArrayList<Integer>();
+        var sources = new ArrayList<File>();
+        var destFolders = new ArrayList<String>();
+        var names = new ArrayList<String>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) continue;
+            var job = jobs.get(i);
+            if (job.size >= LARGE_FILE_SIZE) {
+                results[i] = copyWithProgress(bridge, job);
+                if (hashes[i] != null && results[i].path != null) store.putSavedPath(hashes[i], results[i].path, job.size);
+                continue;
+            }
+            indexes.add(i);
+            sources.add(new File(job.sourcePath));
+            destFolders.add(job.destFolder);
+            names.add(job.name);
+        }
+        if (indexes.isEmpty()) return;
+        var errors = Utils.copyFiles(bridge, sources, destFolders, names);
+        for (int c = 0; c < indexes.size(); c++) {
+            int i = indexes.get(c);
+            var job = jobs.get(i);
+            var error = errors.get(c);
+            if (TextUtils.isEmpty(error)) {
+                var destPath = new File(job.destFolder, job.name).getAbsolutePath();
+                if (hashes[i] != null) store.putSavedPath(hashes[i], destPath, job.size);
+                results[i] = SaveQueue.Result.saved(destPath);
+            } else if (!WppCore.isBridgeAlive()) {
+                results[i] = SaveQueue.Result.retry(error);
+            } else {
+                results[i] = SaveQueue.Result.failed(error);
+            }
+        }
+    }
+
+    @NonNull
+    private static SaveQueue.Result copyWithProgress(@Nullable WaeIIFace bridge, @NonNull SaveJob job) {
+        var error = Utils.copyFile(bridge, new File(job.sourcePath), job.destFolder, job.name, (copied, total) -> job.copied = copied, job.cancellation);
+        if (TextUtils.isEmpty(error)) return SaveQueue.Result.saved(new File(job.destFolder, job.name).getAbsolutePath());
+        if (job.cancellation.isCanceled()) return SaveQueue.Result.failed(SaveQueue.CANCELLED);
+        if (bridge != null && !WppCore.isBridgeAlive()) return SaveQueue.Result.retry(error);
+        return SaveQueue.Result.failed(error);
+    }
+
+    @Nullable
+    private static FileStat[] statFiles(@NonNull WaeIIFace bridge, @NonNull String[] paths) {
+        try {
+            return bridge.statFiles(paths);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static void showResult(@Nullable SaveJob job, @NonNull String error) {
+        if (TextUtils.isEmpty(error) && job != null) {
+            var savedPath = job.getSavedPath();
+            var folder = savedPath == null ? job.destFolder : new File(savedPath).getParent();
+            Utils.showToast(Utils.getApplication().getString(ResId.string.saved_to) + folder, Toast.LENGTH_SHORT);
+        } else {
+            Utils.showToast(Utils.getApplication().getString(ResId.string.error_when_saving_try_again) + ": " + error, Toast.LENGTH_SHORT);
+        }
+    }
+}
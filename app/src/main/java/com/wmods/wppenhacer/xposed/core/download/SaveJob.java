@@ -0,0 +1,80 @@
+package com.wmods.wppenhacer.xposed.core.download;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A pending copy of a media file into the download folder.
+ * <p>
+ * Jobs are identified by {@link #key}, built from the source path, size and modification time, so
+ * the same file saved twice while the first copy is still queued collapses into one job.
+ */
+public class SaveJob {
+
+    @NonNull
+    public final String key;
+    @NonNull
+    public final String sourcePath;
+    public final long size;
+    public final long lastModified;
+    @NonNull
+    public final String destFolder;
+    @NonNull
+    public final String name;
+    public final int priority;
+    public final long createdAt;
+    /**
+     * WhatsApp's file_hash from msgstore, a Base64 SHA-256 of the content. Null for files that did
+     * not come from a message, which are then never matched against earlier saves.
+     */
+    @Nullable
+    public final String hash;
+    int attempts;
+    @Nullable
+    volatile String savedPath;
+    /**
+     * Set by {@link SaveQueue#cancel(String)} and checked by the copier between chunks.
+     */
+    @NonNull
+    final CancellationSignal cancellation = new CancellationSignal();
+    volatile long copied;
+
+    public SaveJob(@NonNull String sourcePath, long size, long lastModified, @NonNull String destFolder, @NonNull String name, int priority, long createdAt, int attempts, @Nullable String hash) {
+        this.key = keyOf(sourcePath, size, lastModified);
+        this.sourcePath = sourcePath;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.destFolder = destFolder;
+        this.name = name;
+        this.priority = priority;
+        this.createdAt = createdAt;
+        this.attempts = attempts;
+        this.hash = hash;
+    }
+
+    @NonNull
+    public static String keyOf(@NonNull String sourcePath, long size, long lastModified) {
+        return sourcePath + "|" + size + "|" + lastModified;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Bytes written so far by a copy that reports progress, 0 for the ones done by the bridge.
+     */
+    public long getCopied() {
+        return copied;
+    }
+
+    /**
+     * Where the file ended up, which is an earlier copy when the content was already saved.
+     */
+    @Nullable
+    public String getSavedPath() {
+        return savedPath;
+    }
+}
@@ -0,0 +1,289 @@
+package com.wmods.wppenhacer.xposed.core.download;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Priority queue of {@link SaveJob}s with bounded concurrency, deduplication and retries.
+ * Jobs waiting at the same priority are handed to the {@link Copier} together, up to
+ * {@link #MAX_BATCH} at a time, so a bulk save costs one round trip per batch instead of per file.
+ * <p>
+ * The queue only talks to its collaborators through the interfaces below, so storage, the file
+ * system and the copy itself can all be replaced. Every job is written to the {@link Store} before
+ * it runs and removed once it finishes, which lets {@link #restore()} pick up unfinished jobs after
+ * the process is restarted.
+ */
+public class SaveQueue {
+
+    public static final int MAX_ATTEMPTS = 5;
+    public static final int MAX_BATCH = 16;
+    public static final String CANCELLED = "Cancelled";
+    private static final long RETRY_BASE_DELAY = 2000;
+
+    private final Store store;
+    private final FileSystem fileSystem;
+    private final Copier copier;
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final int maxConcurrent;
+    private final Listener defaultListener;
+
+    private final PriorityQueue<SaveJob> pending = new PriorityQueue<>((a, b) -> a.priority != b.priority ? Integer.compare(b.priority, a.priority) : Long.compare(a.createdAt, b.createdAt));
+    private final Map<String, List<Listener>> active = new HashMap<>();
+    private final Map<String, SaveJob> jobs = new HashMap<>();
+    private int running;
+
+    public SaveQueue(@NonNull Store store, @NonNull FileSystem fileSystem, @NonNull Copier copier, @NonNull Executor executor, @NonNull ScheduledExecutorService scheduler, int maxConcurrent, @NonNull Listener defaultListener) {
+        this.store = store;
+        this.fileSystem = fileSystem;
+        this.copier = copier;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.maxConcurrent = maxConcurrent;
+        this.defaultListener = defaultListener;
+    }
+
+    /**
+     * Queues every job left in the store by a previous process. Their callers are gone, so the
+     * default listener reports them.
+     */
+    public void restore() {
+        var restored = store.loadAll();
+        synchronized (this) {
+            for (var job : restored) {
+                if (active.containsKey(job.key)) continue;
+                var listeners = new ArrayList<Listener>(1);
+                listeners.add(defaultListener);
+                active.put(job.key, listeners);
+                jobs.put(job.key, job);
+                pending.add(job);
+            }
+        }
+        pump();
+    }
+
+    /**
+     * Queues a copy of {@code sourcePath}. If the same file, with the same size and modification
+     * time, is already queued the listener is attached to that job instead.
+     *
+     * @return false when the job was merged into an existing one, the source does not exist or the
+     * job could not be persisted
+     */
+    public boolean enqueue(@NonNull String sourcePath, @NonNull String destFolder, @NonNull String name, int priority, @Nullable String hash, @Nullable Listener listener) {
+        var stat = fileSystem.stat(sourcePath);
+        if (stat == null) {
+            if (listener != null) listener.onFinished(null, "File not found or is null");
+            return false;
+        }
+        var job = new SaveJob(sourcePath, stat[0], stat[1], destFolder, name, priority, System.currentTimeMillis(), 0, hash);
+        synchronized (this) {
+            var listeners = active.get(job.key);
+            if (listeners != null) {
+                if (listener != null) listeners.add(listener);
+                return false;
+            }
+            listeners = new ArrayList<>(1);
+            if (listener != null) listeners.add(listener);
+            active.put(job.key, listeners);
+            jobs.put(job.key, job);
+        }
+        try {
+            store.put(job);
+        } catch (RuntimeException e) {
+            // roll back, or every later save of this file would merge into a job that never runs
+            List<Listener> listeners;
+            synchronized (this) {
+                listeners = active.remove(job.key);
+                jobs.remove(job.key);
+            }
+            notifyFinished(job, listeners, "Failed to queue file: " + e.getMessage());
+            return false;
+        }
+        synchronized (this) {
+            pending.add(job);
+        }
+        pump();
+        return true;
+    }
+
+    /**
+     * Cancels the job with {@code key}. A waiting job is dropped right away, a running one stops at
+     * the copier's next check and is reported with {@link #CANCELLED}.
+     *
+     * @return false when no job with that key is queued
+     */
+    public boolean cancel(@NonNull String key) {
+        SaveJob job;
+        boolean waiting;
+        synchronized (this) {
+            job = jobs.get(key);
+            if (job == null) return false;
+            waiting = pending.remove(job);
+        }
+        job.cancellation.cancel();
+        if (waiting) finish(job, Result.failed(CANCELLED));
+        return true;
+    }
+
+    public synchronized int size() {
+        return active.size();
+    }
+
+    private void pump() {
+        while (true) {
+            final List<SaveJob> batch;
+            synchronized (this) {
+                if (running >= maxConcurrent || pending.isEmpty()) return;
+                batch = new ArrayList<>();
+                var first = pending.poll();
+                batch.add(first);
+                SaveJob next;
+                while (batch.size() < MAX_BATCH && (next = pending.peek()) != null && next.priority == first.priority) {
+                    batch.add(pending.poll());
+                }
+                running++;
+            }
+            executor.execute(() -> run(batch));
+        }
+    }
+
+    private void run(List<SaveJob> batch) {
+        CompletableFuture<List<Result>> future;
+        try {
+            future = copier.copy(batch);
+        } catch (Throwable t) {
+            future = CompletableFuture.failedFuture(t);
+        }
+        future.whenComplete((results, t) -> finishBatch(batch, results, t));
+    }
+
+    private void finishBatch(List<SaveJob> batch, List<Result> results, Throwable t) {
+        if (t == null && results.size() != batch.size()) {
+            t = new IllegalStateException("Copier returned " + results.size() + " results for " + batch.size() + " jobs");
+        }
+        if (t != null) {
+            var cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+            var failed = Result.failed(cause.getMessage());
+            results = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) results.add(failed);
+        }
+        synchronized (this) {
+            running--;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            finish(batch.get(i), results.get(i));
+        }
+        pump();
+    }
+
+    private void finish(SaveJob job, Result result) {
+        if (result.retry && job.attempts + 1 < MAX_ATTEMPTS && !job.cancellation.isCanceled()) {
+            job.attempts++;
+            store.put(job);
+            long delay = RETRY_BASE_DELAY << (job.attempts - 1);
+            scheduler.schedule(() -> {
+                // cancelled while waiting for the retry
+                if (job.cancellation.isCanceled()) {
+                    finish(job, Result.failed(CANCELLED));
+                    return;
+                }
+                synchronized (this) {
+                    pending.add(job);
+                }
+                pump();
+            }, delay, TimeUnit.MILLISECONDS);
+        } else {
+            job.savedPath = result.path;
+            store.remove(job.key);
+            List<Listener> listeners;
+            synchronized (this) {
+                listeners = active.remove(job.key);
+                jobs.remove(job.key);
+            }
+            notifyFinished(job, listeners, result.error);
+        }
+    }
+
+    private static void notifyFinished(SaveJob job, List<Listener> listeners, String error) {
+        if (listeners == null) return;
+        for (var listener : listeners) {
+            listener.onFinished(job, error);
+        }
+    }
+
+    public interface Store {
+        @NonNull
+        List<SaveJob> loadAll();
+
+        void put(@NonNull SaveJob job);
+
+        void remove(@NonNull String key);
+    }
+
+    public interface FileSystem {
+        /**
+         * @return {size, lastModified} or null when the file does not exist
+         */
+        @Nullable
+        long[] stat(@NonNull String path);
+    }
+
+    public interface Copier {
+        /**
+         * Copies jobs that share a priority. The batch keeps its slot until the future completes,
+         * so a copier waiting for a connection does not block a thread.
+         *
+         * @return one result per job, in the same order
+         */
+        @NonNull
+        CompletableFuture<List<Result>> copy(@NonNull List<SaveJob> jobs);
+    }
+
+    public interface Listener {
+        /**
+         * @param job   null when the source could not be queued at all
+         * @param error empty on success
+         */
+        void onFinished(@Nullable SaveJob job, @NonNull String error);
+    }
+
+    public static final class Result {
+        @NonNull
+        public final String error;
+        public final boolean retry;
+        @Nullable
+        public final String path;
+
+        private Result(@NonNull String error, boolean retry, @Nullable String path) {
+            this.error = error;
+            this.retry = retry;
+            this.path = path;
+        }
+
+        public static Result saved(@NonNull String path) {
+            return new Result("", false, path);
+        }
+
+        public static Result failed(@Nullable String error) {
+            return new Result(error == null ? "Unknown error" : error, false, null);
+        }
+
+        /**
+         * A failure that may go away on its own, such as the bridge being disconnected.
+         */
+        public static Result retry(@Nullable String error) {
+            return new Result(error == null ? "Unknown error" : error, true, null);
+        }
+    }
+}
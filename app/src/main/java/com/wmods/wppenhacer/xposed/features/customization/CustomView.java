@@ -16,6 +16,9 @@ import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.ShapeDrawable;
 import android.graphics.drawable.shapes.RectShape;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.DisplayMetrics;
 import android.util.Log;
@@ -32,6 +35,7 @@ import androidx.annotation.Nullable;
 
 import com.wmods.wppenhacer.preference.ThemePreference;
 import com.wmods.wppenhacer.utils.IColors;
+import com.wmods.wppenhacer.xposed.bridge.FileStat;
 import com.wmods.wppenhacer.xposed.core.Feature;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.utils.ReflectionUtils;
@@ -48,9 +52,11 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import cz.vutbr.web.css.CSSFactory;
 import cz.vutbr.web.css.CombinedSelector;
@@ -129,10 +135,8 @@ public class CustomView extends Feature {
 
         properties = Utils.getProperties(prefs, "custom_css", "custom_filters");
 
-        WppCore.addListenerActivity((activity1, type) -> {
-            if (type != WppCore.ActivityChangeState.ChangeType.CREATED) return;
-            changeDPI(activity1, prefs, properties);
-        });
+        WppCore.addListenerActivity((activity1, type) -> changeDPI(activity1, prefs, properties),
+                WppCore.ActivityChangeState.ChangeType.CREATED);
 
         hookDrawableViews();
 
@@ -266,6 +270,9 @@ public class CustomView extends Feature {
     }
 
     private void setRuleInView(RuleItem ruleItem, View view) {
+        // images read through the bridge are applied again once it connects
+        var target = view;
+        Runnable onBridgeReady = () -> setRuleInView(ruleItem, target);
         for (var declaration : ruleItem.rule) {
             var property = declaration.getProperty();
             switch (property) {
@@ -330,7 +337,7 @@ public class CustomView extends Feature {
                 }
                 case "background-image" -> {
                     if (!(declaration.get(0) instanceof TermURI uri)) continue;
-                    var draw = cacheImages.getDrawable(uri.getValue(), view.getWidth(), view.getHeight());
+                    var draw = cacheImages.getDrawable(uri.getValue(), view.getWidth(), view.getHeight(), onBridgeReady);
                     if (draw == null) continue;
                     if (XposedHelpers.getAdditionalInstanceField(view, "mHookedBackground") != null || XposedHelpers.getAdditionalInstanceField(view, "mHookedDrawable") != null)
                         continue;
@@ -408,7 +415,7 @@ public class CustomView extends Feature {
                         continue;
                     }
                     if (declaration.get(0) instanceof TermURI uri) {
-                        var draw = cacheImages.getDrawable(uri.getValue(), view.getWidth(), view.getHeight());
+                        var draw = cacheImages.getDrawable(uri.getValue(), view.getWidth(), view.getHeight(), onBridgeReady);
                         if (draw == null) continue;
                         view.setBackground(draw);
                         continue;
@@ -427,7 +434,7 @@ public class CustomView extends Feature {
                         continue;
                     }
                     if (declaration.get(0) instanceof TermURI uri) {
-                        var draw = cacheImages.getDrawable(uri.getValue(), view.getWidth(), view.getHeight());
+                        var draw = cacheImages.getDrawable(uri.getValue(), view.getWidth(), view.getHeight(), onBridgeReady);
                         if (draw == null) continue;
                         view.setForeground(draw);
                         continue;
@@ -679,7 +686,10 @@ public class CustomView extends Feature {
 
 
     public class DrawableCache {
+        // how long a folder listing fetched through the bridge is trusted before it is read again
+        private static final long LISTING_TTL_MS = 2000;
         private final LruCache<String, CachedDrawable> drawableCache;
+        private final Map<String, BridgeListing> bridgeListings = new ConcurrentHashMap<>();
         private final Context context;
 
         public DrawableCache(Context context, int maxSize) {
@@ -709,16 +719,34 @@ public class CustomView extends Feature {
         }
 
 
+        /**
+         * Returns null when the file can only be read through the bridge and it is not connected yet.
+         * Rules are applied on the main thread, which must not wait for the bridge, so
+         * {@code onBridgeReady} is posted to it once the connection completes.
+         */
         @Nullable
-        public Drawable getDrawable(String filePath, int width, int height) {
+        public Drawable getDrawable(String filePath, int width, int height, Runnable onBridgeReady) {
             File file = filePath.startsWith("/") ? new File(filePath) : new File(themeDir, filePath);
-
-            if (!file.exists()) {
-                return null;
-            }
             String key = file.getAbsolutePath();
-            long lastModified = file.lastModified();
             CachedDrawable cachedDrawable = drawableCache.get(key);
+
+            long lastModified;
+            if (file.canRead()) {
+                lastModified = file.lastModified();
+            } else {
+                var parent = file.getParentFile();
+                if (parent != null && parent.canRead()) return null;
+                if (!WppCore.isBridgeAlive()) {
+                    WppCore.connectBridge().thenAccept(service -> {
+                        if (service != null) new Handler(Looper.getMainLooper()).post(onBridgeReady);
+                    });
+                    // keep showing what was loaded before the connection dropped
+                    return cachedDrawable == null ? null : cachedDrawable.drawable;
+                }
+                var stat = statThroughBridge(file);
+                if (stat == null || !stat.exists() || stat.isDirectory()) return null;
+                lastModified = stat.lastModified;
+            }
             if (cachedDrawable != null && cachedDrawable.lastModified == lastModified) {
                 return cachedDrawable.drawable;
             }
@@ -736,6 +764,32 @@ public class CustomView extends Feature {
             return drawable;
         }
 
+        /**
+         * Looks {@code file} up in a listing of its folder fetched with listFilesWithMetadata, so
+         * every image of a theme folder costs one binder call per {@link #LISTING_TTL_MS}
+         * instead of one per lookup.
+         */
+        @Nullable
+        private FileStat statThroughBridge(File file) {
+            var folder = file.getParent();
+            if (folder == null) return null;
+            var now = SystemClock.uptimeMillis();
+            var listing = bridgeListings.get(folder);
+            if (listing == null || now - listing.loadedAt > LISTING_TTL_MS) {
+                try {
+                    var stats = WppCore.getClientBridge().listFilesWithMetadata(folder);
+                    var files = new HashMap<String, FileStat>(stats.length * 2);
+                    for (var stat : stats) files.put(stat.name, stat);
+                    listing = new BridgeListing(files, now);
+                    bridgeListings.put(folder, listing);
+                } catch (Exception e) {
+                    XposedBridge.log(e);
+                    return null;
+                }
+            }
+            return listing.files.get(file.getName());
+        }
+
         private void saveDrawableToCache(String key, BitmapDrawable drawable, long lastModified) {
             File cacheDir = context.getCacheDir();
             File cacheLocation = new File(cacheDir, "drawable_cache");
@@ -787,6 +841,16 @@ public class CustomView extends Feature {
             return String.valueOf(Objects.hash(input));
         }
 
+        private static class BridgeListing {
+            final Map<String, FileStat> files;
+            final long loadedAt;
+
+            BridgeListing(Map<String, FileStat> files, long loadedAt) {
+                this.files = files;
+                this.loadedAt = loadedAt;
+            }
+        }
+
         private static class CachedDrawable {
             Drawable drawable;
             long lastModified;
@@ -22,7 +22,6 @@ import com.wmods.wppenhacer.xposed.utils.Utils;
 
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XSharedPreferences;
-import de.robv.android.xposed.XposedBridge;
 import de.robv.android.xposed.XposedHelpers;
 
 
@@ -50,7 +49,7 @@ public class HideSeenView extends Feature {
                 if (adapter == null) return;
                 mAdapter = adapter;
                 var method = mAdapter.getClass().getDeclaredMethod("getView", int.class, View.class, ViewGroup.class);
-                XposedBridge.hookMethod(method, new XC_MethodHook() {
+                hookOnce(method, new XC_MethodHook() {
                     @Override
                     protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                         if (param.thisObject != mAdapter) return;
@@ -60,7 +59,7 @@ public class HideSeenView extends Feature {
                         Object fMessageObj = mAdapter.getItem(position);
                         if (fMessageObj == null) return;
                         var fmessage = new FMessageWpp(fMessageObj);
-                        if (fmessage.getKey().isFromMe) return;
+                        if (fmessage.getKey().isFromMe()) return;
                         viewGroup.post(() -> updateBubbleView(fmessage, viewGroup));
                     }
                 });
@@ -76,8 +75,8 @@ public class HideSeenView extends Feature {
 
     @SuppressLint("ResourceType")
     private static void updateBubbleView(FMessageWpp fmessage, View viewGroup) {
-        var jid = WppCore.getRawString(fmessage.getKey().remoteJid);
-        var messageId = fmessage.getKey().messageID;
+        var jid = WppCore.getRawString(fmessage.getKey().getRemoteJid());
+        var messageId = fmessage.getKey().getMessageID();
         ImageView view = viewGroup.findViewById(Utils.getID("view_once_control_icon", "id"));
         if (view != null) {
             var messageOnce = MessageHistory.getInstance().getHideSeenMessage(jid, messageId, MessageHistory.MessageType.VIEW_ONCE_TYPE);
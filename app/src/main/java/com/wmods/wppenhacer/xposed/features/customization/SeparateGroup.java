@@ -5,6 +5,8 @@ import static de.robv.android.xposed.XposedHelpers.getObjectField;
 
 import android.annotation.SuppressLint;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.widget.BaseAdapter;
@@ -19,11 +21,14 @@ import com.wmods.wppenhacer.xposed.core.devkit.UnobfuscatorCache;
 import com.wmods.wppenhacer.xposed.utils.ReflectionUtils;
 import com.wmods.wppenhacer.xposed.utils.Utils;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
 import de.robv.android.xposed.XC_MethodHook;
@@ -40,6 +45,11 @@ public class SeparateGroup extends Feature {
     public static final int GROUPS = 500;
     public static ArrayList<Integer> tabs = new ArrayList<>();
     public static HashMap<Integer, Object> tabInstances = new HashMap<>();
+    private final AtomicBoolean unreadRefreshing = new AtomicBoolean();
+    private volatile int[] unreadCounts = new int[2];
+    private volatile long unreadDataVersion = Long.MIN_VALUE;
+    private volatile Object lastCountTarget;
+    private volatile Object[] lastCountArgs;
 
     public SeparateGroup(ClassLoader loader, XSharedPreferences preferences) {
         super(loader, preferences);
@@ -88,37 +98,16 @@ public class SeparateGroup extends Feature {
         logDebug(Unobfuscator.getMethodDescriptor(enableCountMethod));
         XposedBridge.hookMethod(enableCountMethod, new XC_MethodHook() {
             @Override
-            @SuppressLint({"Range", "Recycle"})
             protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                 var indexTab = (int) param.args[2];
                 if (indexTab == tabs.indexOf(CHATS)) {
+                    lastCountTarget = param.thisObject;
+                    lastCountArgs = param.args.clone();
+                    refreshUnreadCounts(enableCountMethod);
 
-                    var chatCount = 0;
-                    var groupCount = 0;
-                    synchronized (SeparateGroup.class) {
-                        var db = MessageStore.getInstance().getDatabase();
-                        var sql = "SELECT * FROM chat WHERE unseen_message_count != 0";
-                        var cursor = db.rawQuery(sql, null);
-                        while (cursor.moveToNext()) {
-                            int jid = cursor.getInt(cursor.getColumnIndex("jid_row_id"));
-                            int groupType = cursor.getInt(cursor.getColumnIndex("group_type"));
-                            int archived = cursor.getInt(cursor.getColumnIndex("archived"));
-                            int chatLocked = cursor.getInt(cursor.getColumnIndex("chat_lock"));
-                            if (archived != 0 || (groupType != 0 && groupType != 6) || chatLocked != 0)
-                                continue;
-                            var sql2 = "SELECT * FROM jid WHERE _id == ?";
-                            var cursor1 = db.rawQuery(sql2, new String[]{String.valueOf(jid)});
-                            if (!cursor1.moveToFirst()) continue;
-                            var server = cursor1.getString(cursor1.getColumnIndex("server"));
-                            if (server.equals("g.us")) {
-                                groupCount++;
-                            } else {
-                                chatCount++;
-                            }
-                            cursor1.close();
-                        }
-                        cursor.close();
-                    }
+                    var counts = unreadCounts;
+                    var chatCount = counts[0];
+                    var groupCount = counts[1];
                     if (tabs.contains(CHATS) && tabInstances.containsKey(CHATS)) {
                         var instance12 = chatCount <= 0 ? constructor3.newInstance() : constructor2.newInstance(chatCount);
                         var instance22 = constructor1.newInstance(instance12);
@@ -134,6 +123,37 @@ public class SeparateGroup extends Feature {
         });
     }
 
+    /**
+     * Recomputes the unread counters in background when msgstore.db changed since the last run.
+     * The badge is drawn with the cached values meanwhile and updated once the new counts arrive.
+     */
+    private void refreshUnreadCounts(Method enableCountMethod) {
+        var messageStore = MessageStore.getInstance();
+        var dataVersion = messageStore.getDataVersion();
+        if (dataVersion != -1 && dataVersion == unreadDataVersion) return;
+        if (!unreadRefreshing.compareAndSet(false, true)) return;
+        Utils.getExecutor().execute(() -> {
+            try {
+                var start = System.nanoTime();
+                var counts = messageStore.getUnreadChatCounts();
+                logDebug("Unread counts computed in " + (System.nanoTime() - start) / 1000 + "us");
+                unreadDataVersion = dataVersion;
+                if (Arrays.equals(counts, unreadCounts)) return;
+                unreadCounts = counts;
+                new Handler(Looper.getMainLooper()).post(() -> {
+                    try {
+                        if (lastCountTarget == null) return;
+                        enableCountMethod.invoke(lastCountTarget, lastCountArgs);
+                    } catch (Exception e) {
+                        logDebug(e);
+                    }
+                });
+            } finally {
+                unreadRefreshing.set(false);
+            }
+        });
+    }
+
     private void hookTabIcon() throws Exception {
         var iconTabMethod = Unobfuscator.loadIconTabMethod(classLoader);
         logDebug(Unobfuscator.getMethodDescriptor(iconTabMethod));
@@ -152,6 +152,9 @@ public class ShowOnline extends Feature {
         // load methods
         var tokenClass = sendPresenceMethod.getParameterTypes()[2];
         var fieldTokenDBInstance = ReflectionUtils.getFieldByExtendType(sendPresenceMethod.getDeclaringClass(), tcTokenMethod.getDeclaringClass());
+        var viewField = ReflectionUtils.findFieldUsingFilter(absViewHolderClass, field -> field.getType() == View.class);
+        var getAdapterPositionMethod = ReflectionUtils.findMethodUsingFilter(absViewHolderClass, method -> method.getParameterCount() == 0 && method.getReturnType() == int.class);
+        var jidClass = XposedHelpers.findClass("com.whatsapp.jid.Jid", classLoader);
 
 
         XposedBridge.hookMethod(onChangeStatus, new XC_MethodHook() {
@@ -160,17 +163,15 @@ public class ShowOnline extends Feature {
             protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                 var viewHolder = field1.get(param.thisObject);
                 var object = param.args[0];
-                var viewField = ReflectionUtils.findFieldUsingFilter(absViewHolderClass, field -> field.getType() == View.class);
                 var view = (View) viewField.get(viewHolder);
 
-                var getAdapterPositionMethod = ReflectionUtils.findMethodUsingFilter(absViewHolderClass, method -> method.getParameterCount() == 0 && method.getReturnType() == int.class);
                 var position = (int) ReflectionUtils.callMethod(getAdapterPositionMethod, viewHolder);
                 ImageView csDot = showOnlineIcon ? view.findViewById(0x7FFF0001) : null;
                 if (showOnlineIcon) {
                     csDot.setVisibility(View.INVISIBLE);
                 }
                 TextView lastSeenText = showOnlineText ? view.findViewById(0x7FFF0002) : null;
-                var jidFiled = ReflectionUtils.getFieldByExtendType(object.getClass(), XposedHelpers.findClass("com.whatsapp.jid.Jid", classLoader));
+                var jidFiled = ReflectionUtils.getFieldByExtendType(object.getClass(), jidClass);
                 var jidObject = jidFiled.get(object);
                 var jid = WppCore.getRawString(jidObject);
                 if (WppCore.isGroup(jid)) return;
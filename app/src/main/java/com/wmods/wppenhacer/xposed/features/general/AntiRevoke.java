@@ -6,7 +6,10 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 
+import com.wmods.wppenhacer.xposed.core.ConversationState;
 import com.wmods.wppenhacer.xposed.core.Feature;
+import com.wmods.wppenhacer.xposed.core.HookDispatcher;
+import com.wmods.wppenhacer.xposed.core.HookConfig;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.components.FMessageWpp;
 import com.wmods.wppenhacer.xposed.core.db.DelMessageStore;
@@ -71,21 +74,21 @@ public class AntiRevoke extends Feature {
                     }
                     return;
                 }
-                var rawString = WppCore.getRawString(messageKey.remoteJid);
+                var rawString = WppCore.getRawString(messageKey.getRemoteJid());
                 if (WppCore.isGroup(rawString)) {
                     if (deviceJid != null && antiRevoke(fMessage) != 0) {
                         param.setResult(true);
                     }
-                } else if (!messageKey.isFromMe && antiRevoke(fMessage) != 0) {
+                } else if (!messageKey.isFromMe() && antiRevoke(fMessage) != 0) {
                     param.setResult(true);
                 }
             }
         });
 
 
-        XposedBridge.hookMethod(bubbleMethod, new XC_MethodHook() {
+        HookDispatcher.hook(bubbleMethod, this, new HookDispatcher.Listener() {
             @Override
-            protected void afterHookedMethod(MethodHookParam param) {
+            public void afterHookedMethod(XC_MethodHook.MethodHookParam param) {
                 var objMessage = param.args[2];
                 var dateTextView = (TextView) param.args[1];
                 isMRevoked(objMessage, dateTextView, "antirevoke");
@@ -135,14 +138,14 @@ public class AntiRevoke extends Feature {
 
     private static void saveRevokedMessage(FMessageWpp fMessage) {
         var messageKey = (String) XposedHelpers.getObjectField(fMessage.getObject(), "A01");
-        var stripJID = WppCore.stripJID(WppCore.getRawString(fMessage.getKey().remoteJid));
+        var stripJID = WppCore.stripJID(WppCore.getRawString(fMessage.getKey().getRemoteJid()));
         HashSet<String> messages = getRevokedMessages(fMessage);
         messages.add(messageKey);
-        DelMessageStore.getInstance(Utils.getApplication()).insertMessage(stripJID, messageKey, System.currentTimeMillis());
+        DelMessageStore.getInstance(Utils.getApplication()).insertMessage(stripJID, messageKey, System.currentTimeMillis(), fMessage.getMessageStr());
     }
 
     private static HashSet<String> getRevokedMessages(FMessageWpp fMessage) {
-        String jid = WppCore.stripJID(WppCore.getRawString(fMessage.getKey().remoteJid));
+        String jid = WppCore.stripJID(WppCore.getRawString(fMessage.getKey().getRemoteJid()));
         if (messageRevokedMap.containsKey(jid)) {
             return messageRevokedMap.get(jid);
         }
@@ -160,8 +163,8 @@ public class AntiRevoke extends Feature {
         var messageRevokedList = getRevokedMessages(fMessage);
         var id = fMessage.getRowId();
         String keyOrig = null;
-        if (messageRevokedList.contains(key.messageID) || ((keyOrig = MessageStore.getInstance().getOriginalMessageKey(id)) != null && messageRevokedList.contains(keyOrig))) {
-            var timestamp = DelMessageStore.getInstance(Utils.getApplication()).getTimestampByMessageId(keyOrig == null ? key.messageID : keyOrig);
+        if (messageRevokedList.contains(key.getMessageID()) || ((keyOrig = MessageStore.getInstance().getOriginalMessageKey(id)) != null && messageRevokedList.contains(keyOrig))) {
+            var timestamp = DelMessageStore.getInstance(Utils.getApplication()).getTimestampByMessageId(keyOrig == null ? key.getMessageID() : keyOrig);
             if (timestamp > 0) {
                 Locale locale = Utils.getApplication().getResources().getConfiguration().getLocales().get(0);
                 DateFormat dateFormat = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale);
@@ -169,7 +172,7 @@ public class AntiRevoke extends Feature {
                 dateTextView.getPaint().setUnderlineText(true);
                 dateTextView.setOnClickListener(v -> Utils.showToast(String.format(Utils.getApplication().getString(ResId.string.message_removed_on), date), Toast.LENGTH_LONG));
             }
-            var antirevokeValue = Integer.parseInt(prefs.getString(antirevokeType, "0"));
+            var antirevokeValue = "antirevokestatus".equals(antirevokeType) ? HookConfig.get().antiRevokeStatus : HookConfig.get().antiRevoke;
             if (antirevokeValue == 1) {
                 // Text
                 var newTextData = UnobfuscatorCache.getInstance().getString("messagedeleted") + " | " + dateTextView.getText();
@@ -196,8 +199,8 @@ public class AntiRevoke extends Feature {
     private int antiRevoke(FMessageWpp fMessage) {
         showToast(fMessage);
         var messageKey = (String) XposedHelpers.getObjectField(fMessage.getObject(), "A01");
-        var stripJID = WppCore.stripJID(WppCore.getRawString(fMessage.getKey().remoteJid));
-        var revokeboolean = stripJID.equals("status") ? Integer.parseInt(prefs.getString("antirevokestatus", "0")) : Integer.parseInt(prefs.getString("antirevoke", "0"));
+        var stripJID = WppCore.stripJID(WppCore.getRawString(fMessage.getKey().getRemoteJid()));
+        var revokeboolean = stripJID.equals("status") ? HookConfig.get().antiRevokeStatus : HookConfig.get().antiRevoke;
         if (revokeboolean == 0) return revokeboolean;
         var messageRevokedList = getRevokedMessages(fMessage);
         if (!messageRevokedList.contains(messageKey)) {
@@ -205,8 +208,9 @@ public class AntiRevoke extends Feature {
                 CompletableFuture.runAsync(() -> {
                     saveRevokedMessage(fMessage);
                     try {
-                        var mConversation = WppCore.getCurrentConversation();
-                        if (mConversation != null && WppCore.stripJID(WppCore.getCurrentRawJID()).equals(stripJID)) {
+                        var state = ConversationState.get();
+                        var mConversation = state.activity;
+                        if (mConversation != null && stripJID.equals(WppCore.stripJID(state.getRawJid()))) {
                             mConversation.runOnUiThread(() -> {
                                 if (mConversation.hasWindowFocus()) {
                                     mConversation.startActivity(mConversation.getIntent());
@@ -229,7 +233,7 @@ public class AntiRevoke extends Feature {
     }
 
     private void showToast(FMessageWpp fMessage) {
-        var jidAuthor = WppCore.getRawString(fMessage.getKey().remoteJid);
+        var jidAuthor = WppCore.getRawString(fMessage.getKey().getRemoteJid());
         var messageSuffix = Utils.getApplication().getString(ResId.string.deleted_message);
         var isStatus = Objects.equals(WppCore.stripJID(jidAuthor), "status");
         if (isStatus) {
@@ -252,7 +256,7 @@ public class AntiRevoke extends Feature {
         } else {
             message = name + " " + messageSuffix;
         }
-        if (prefs.getBoolean("toastdeleted", false)) {
+        if (HookConfig.get().toastDeleted) {
             Utils.showToast(message, Toast.LENGTH_LONG);
         }
         Tasker.sendTaskerEvent(name, WppCore.stripJID(jidAuthor), isStatus ? "deleted_status" : "deleted_message");
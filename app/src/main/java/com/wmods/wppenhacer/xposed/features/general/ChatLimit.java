@@ -19,6 +19,9 @@ import de.robv.android.xposed.XposedBridge;
 import de.robv.android.xposed.XposedHelpers;
 
 public class ChatLimit extends Feature {
+    // the scope whose delete hook may act, set while messages are being revoked on this thread
+    private final ThreadLocal<HookScope> revokingScope = new ThreadLocal<>();
+
     public ChatLimit(@NonNull ClassLoader loader, @NonNull XSharedPreferences preferences) {
         super(loader, preferences);
     }
@@ -65,7 +68,6 @@ public class ChatLimit extends Feature {
 
         if (revokeallmessages) {
             XposedBridge.hookMethod(chatLimitDelete2Method, new XC_MethodHook() {
-                private Unhook unhooked;
 
                 @Override
                 protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
@@ -82,23 +84,27 @@ public class ChatLimit extends Feature {
                             break;
                         }
                     }
-                    if (!isExpired) {
-                        unhooked = XposedBridge.hookMethod(chatLimitDeleteMethod, new XC_MethodHook() {
-                            @Override
-                            protected void afterHookedMethod(MethodHookParam param) throws Throwable {
-                                if (ReflectionUtils.isCalledFromMethod(chatLimitDelete2Method)) {
-                                    param.setResult(0L);
-                                }
+                    if (isExpired) return;
+                    var activity = WppCore.getCurrentActivity();
+                    if (activity == null) return;
+                    // hooked once per screen instead of per revoke, and removed when the screen stops
+                    var scope = openScope(activity);
+                    revokingScope.set(scope);
+                    if (!scope.isEmpty()) return;
+                    scope.hook(chatLimitDeleteMethod, new XC_MethodHook() {
+                        @Override
+                        protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                            // set only inside chatLimitDelete2Method on this thread, no stack walk needed
+                            if (revokingScope.get() == scope) {
+                                param.setResult(0L);
                             }
-                        });
-                    }
+                        }
+                    });
                 }
 
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
-                    if (unhooked != null) {
-                        unhooked.unhook();
-                    }
+                    revokingScope.remove();
                 }
             });
         }
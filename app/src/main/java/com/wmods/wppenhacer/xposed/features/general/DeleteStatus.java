@@ -39,7 +39,7 @@ public class DeleteStatus extends Feature {
             @Override
             public MenuItem addMenu(Menu menu, FMessageWpp fMessage) {
                 if (menu.findItem(ResId.string.delete_for_me) != null) return null;
-                if (fMessage.getKey().isFromMe) return null;
+                if (fMessage.getKey().isFromMe()) return null;
                 return menu.add(0, ResId.string.delete_for_me, 0, ResId.string.delete_for_me);
             }
 
@@ -49,7 +49,7 @@ public class DeleteStatus extends Feature {
                     var status = StatusDeleteDialogFragmentClass.newInstance();
                     var key = fMessage.getKey();
                     var bundle = getBundle(key);
-                    WppCore.setPrivBoolean(key.messageID + "_delpass", true);
+                    WppCore.setPrivBoolean(key.getMessageID() + "_delpass", true);
                     fieldBundle.set(status, bundle);
                     showDialogStatus.invoke(null, status, fragmentInstance);
                 } catch (Exception e) {
@@ -69,9 +69,9 @@ public class DeleteStatus extends Feature {
     @NonNull
     private static Bundle getBundle(FMessageWpp.Key key) {
         var bundle = new Bundle();
-        bundle.putString("fMessageKeyJid", WppCore.getRawString(key.remoteJid));
-        bundle.putBoolean("fMessageKeyFromMe", key.isFromMe);
-        bundle.putString("fMessageKeyId", key.messageID);
+        bundle.putString("fMessageKeyJid", WppCore.getRawString(key.getRemoteJid()));
+        bundle.putBoolean("fMessageKeyFromMe", key.isFromMe());
+        bundle.putString("fMessageKeyId", key.getMessageID());
         return bundle;
     }
 }
@@ -10,6 +10,8 @@ import com.wmods.wppenhacer.xposed.core.components.FMessageWpp;
 import com.wmods.wppenhacer.xposed.core.devkit.Unobfuscator;
 import com.wmods.wppenhacer.xposed.utils.ReflectionUtils;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -24,6 +26,7 @@ import de.robv.android.xposed.XposedHelpers;
 public class MenuStatus extends Feature {
 
     public static HashSet<MenuItemStatus> menuStatuses = new HashSet<>();
+    private static Field listStatusField;
 
     public MenuStatus(@NonNull ClassLoader classLoader, @NonNull XSharedPreferences preferences) {
         super(classLoader, preferences);
@@ -38,7 +41,7 @@ public class MenuStatus extends Feature {
 
         Class<?> StatusPlaybackBaseFragmentClass = classLoader.loadClass("com.whatsapp.status.playback.fragment.StatusPlaybackBaseFragment");
         Class<?> StatusPlaybackContactFragmentClass = classLoader.loadClass("com.whatsapp.status.playback.fragment.StatusPlaybackContactFragment");
-        var listStatusField = ReflectionUtils.getFieldsByExtendType(StatusPlaybackContactFragmentClass, List.class).get(0);
+        listStatusField = ReflectionUtils.getFieldsByExtendType(StatusPlaybackContactFragmentClass, List.class).get(0);
 
         XposedBridge.hookMethod(menuStatusMethod, new XC_MethodHook() {
             @Override
@@ -62,12 +65,8 @@ public class MenuStatus extends Feature {
 
                 var index = (int) XposedHelpers.getObjectField(fragmentInstance, "A00");
                 var listStatus = (List) listStatusField.get(fragmentInstance);
-                var object = listStatus.get(index);
+                var object = toFMessage(listStatus.get(index));
                 if (object == null) return;
-                if (!FMessageWpp.TYPE.isInstance(object)) {
-                    var fMessageField = ReflectionUtils.getFieldByExtendType(object.getClass(), FMessageWpp.TYPE);
-                    object = ReflectionUtils.getObjectField(fMessageField, object);
-                }
 
                 var fMessage = new FMessageWpp(object);
 
@@ -83,6 +82,28 @@ public class MenuStatus extends Feature {
         });
     }
 
+    /**
+     * @return every status of the contact shown by {@code fragmentInstance}, in playback order
+     */
+    @NonNull
+    public static List<FMessageWpp> getStatuses(Object fragmentInstance) {
+        var statuses = new ArrayList<FMessageWpp>();
+        if (listStatusField == null || fragmentInstance == null) return statuses;
+        var listStatus = (List<?>) ReflectionUtils.getObjectField(listStatusField, fragmentInstance);
+        if (listStatus == null) return statuses;
+        for (var item : listStatus) {
+            var object = toFMessage(item);
+            if (object != null) statuses.add(new FMessageWpp(object));
+        }
+        return statuses;
+    }
+
+    private static Object toFMessage(Object item) {
+        if (item == null || FMessageWpp.TYPE.isInstance(item)) return item;
+        var fMessageField = ReflectionUtils.getFieldByExtendType(item.getClass(), FMessageWpp.TYPE);
+        return ReflectionUtils.getObjectField(fMessageField, item);
+    }
+
     @NonNull
     @Override
     public String getPluginName() {
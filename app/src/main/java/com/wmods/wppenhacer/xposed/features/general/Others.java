@@ -15,6 +15,7 @@ import androidx.annotation.NonNull;
 
 import com.wmods.wppenhacer.listeners.OnMultiClickListener;
 import com.wmods.wppenhacer.xposed.core.Feature;
+import com.wmods.wppenhacer.xposed.core.HookDispatcher;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.devkit.Unobfuscator;
 import com.wmods.wppenhacer.xposed.utils.AnimationUtil;
@@ -26,7 +27,6 @@ import org.json.JSONObject;
 
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
@@ -40,8 +40,8 @@ import okhttp3.OkHttpClient;
 
 public class Others extends Feature {
 
-    public static HashMap<Integer, Boolean> propsBoolean = new HashMap<>();
-    public static HashMap<Integer, Integer> propsInteger = new HashMap<>();
+    public static final PropsTable propsBoolean = new PropsTable();
+    public static final PropsTable propsInteger = new PropsTable();
     private Properties properties;
 
     public Others(ClassLoader loader, XSharedPreferences preferences) {
@@ -355,10 +355,10 @@ public class Others extends Feature {
         });
 
 
-        XposedBridge.hookMethod(bubbleMethod, new XC_MethodHook() {
+        HookDispatcher.hook(bubbleMethod, this, new HookDispatcher.Listener() {
 
             @Override
-            protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+            public void beforeHookedMethod(XC_MethodHook.MethodHookParam param) throws Throwable {
                 var viewGroup = (View) param.thisObject;
                 if (viewGroup == null) return;
 
@@ -566,15 +566,11 @@ public class Others extends Feature {
             protected void afterHookedMethod(MethodHookParam param) throws Throwable {
                 int i = (int) param.args[param.args.length - 1];
 
-                var propValue = propsBoolean.get(i);
-                if (propValue != null) {
-                    // Fix Bug in Settings Data Usage
-                    switch (i) {
-                        case 4023:
-                            if (ReflectionUtils.isCalledFromClass(dataUsageActivityClass)) return;
-                            break;
-                    }
-                    param.setResult(propValue);
+                int propValue = propsBoolean.getInt(i, -1);
+                if (propValue != -1) {
+                    // Fix Bug in Settings Data Usage, the stack is only walked for overridden 4023 reads
+                    if (i == 4023 && ReflectionUtils.isCalledFromClass(dataUsageActivityClass)) return;
+                    param.setResult(propValue != 0);
                 }
             }
         });
@@ -585,9 +581,8 @@ public class Others extends Feature {
             @Override
             protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                 int i = (int) param.args[param.args.length - 1];
-                var propValue = propsInteger.get(i);
-                if (propValue == null) return;
-                param.setResult(propValue);
+                if (!propsInteger.contains(i)) return;
+                param.setResult(propsInteger.getInt(i, 0));
             }
         });
     }
@@ -0,0 +1,90 @@
+package com.wmods.wppenhacer.xposed.features.general;
+
+import java.util.Arrays;
+
+/**
+ * Override table for WhatsApp AB props keyed by primitive prop id. Writes happen while features
+ * are hooking and publish a new immutable snapshot; lookups from the props getters read that
+ * snapshot without boxing, rejecting unknown ids with a bitset before the binary search.
+ */
+public class PropsTable {
+
+    private volatile Snapshot snapshot = new Snapshot(new int[0], new int[0]);
+
+    public void put(int id, boolean value) {
+        put(id, value ? 1 : 0);
+    }
+
+    public synchronized void put(int id, int value) {
+        var current = snapshot;
+        int index = Arrays.binarySearch(current.ids, id);
+        int[] ids;
+        int[] values;
+        if (index >= 0) {
+            ids = current.ids;
+            values = current.values.clone();
+            values[index] = value;
+        } else {
+            index = -index - 1;
+            ids = new int[current.ids.length + 1];
+            values = new int[ids.length];
+            System.arraycopy(current.ids, 0, ids, 0, index);
+            System.arraycopy(current.values, 0, values, 0, index);
+            System.arraycopy(current.ids, index, ids, index + 1, current.ids.length - index);
+            System.arraycopy(current.values, index, values, index + 1, current.values.length - index);
+            ids[index] = id;
+            values[index] = value;
+        }
+        snapshot = new Snapshot(ids, values);
+    }
+
+    public synchronized void remove(int id) {
+        var current = snapshot;
+        int index = Arrays.binarySearch(current.ids, id);
+        if (index < 0) return;
+        var ids = new int[current.ids.length - 1];
+        var values = new int[ids.length];
+        System.arraycopy(current.ids, 0, ids, 0, index);
+        System.arraycopy(current.values, 0, values, 0, index);
+        System.arraycopy(current.ids, index + 1, ids, index, ids.length - index);
+        System.arraycopy(current.values, index + 1, values, index, values.length - index);
+        snapshot = new Snapshot(ids, values);
+    }
+
+    public boolean contains(int id) {
+        return snapshot.indexOf(id) >= 0;
+    }
+
+    /**
+     * @return the override for {@code id} or {@code defaultValue} when there is none
+     */
+    public int getInt(int id, int defaultValue) {
+        var current = snapshot;
+        int index = current.indexOf(id);
+        return index < 0 ? defaultValue : current.values[index];
+    }
+
+    private static class Snapshot {
+        final int[] ids;
+        final int[] values;
+        final long[] present;
+
+        Snapshot(int[] ids, int[] values) {
+            this.ids = ids;
+            this.values = values;
+            // ids are sorted, so the last one bounds the bitset; empty or all-negative tables get one word
+            int max = ids.length == 0 ? 0 : Math.max(ids[ids.length - 1], 0);
+            present = new long[(max >>> 6) + 1];
+            for (int id : ids) {
+                if (id >= 0) present[id >>> 6] |= 1L << id;
+            }
+        }
+
+        int indexOf(int id) {
+            if (id < 0) return Arrays.binarySearch(ids, id);
+            int word = id >>> 6;
+            if (word >= present.length || (present[word] & (1L << id)) == 0) return -1;
+            return Arrays.binarySearch(ids, id);
+        }
+    }
+}
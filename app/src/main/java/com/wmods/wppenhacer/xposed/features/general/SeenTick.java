@@ -19,7 +19,9 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.collection.ArraySet;
 
+import com.wmods.wppenhacer.xposed.core.ConversationState;
 import com.wmods.wppenhacer.xposed.core.Feature;
+import com.wmods.wppenhacer.xposed.core.HookConfig;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.components.FMessageWpp;
 import com.wmods.wppenhacer.xposed.core.db.MessageHistory;
@@ -31,6 +33,7 @@ import com.wmods.wppenhacer.xposed.utils.ReflectionUtils;
 import com.wmods.wppenhacer.xposed.utils.ResId;
 import com.wmods.wppenhacer.xposed.utils.Utils;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -39,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import de.robv.android.xposed.XC_MethodHook;
@@ -55,6 +59,7 @@ public class SeenTick extends Feature {
     private static String currentJid;
     private static String currentScreen = "none";
     private static final HashMap<String, ImageView> messageMap = new HashMap<>();
+    private static final Predicate<Field> FMESSAGE_FIELD = field -> FMessageWpp.TYPE.isAssignableFrom(field.getType());
 
     public SeenTick(@NonNull ClassLoader loader, @NonNull XSharedPreferences preferences) {
         super(loader, preferences);
@@ -101,14 +106,10 @@ public class SeenTick extends Feature {
 
         // hook conversation screen
 
-        WppCore.addListenerActivity((activity, type) -> {
-            if (activity.getClass().getSimpleName().equals("Conversation") && (type == WppCore.ActivityChangeState.ChangeType.STARTED || type == WppCore.ActivityChangeState.ChangeType.RESUMED)) {
-                var jid = WppCore.getCurrentRawJID();
-                if (!Objects.equals(jid, currentJid)) {
-                    currentJid = jid;
-                }
-                currentScreen = "conversation";
-            }
+        ConversationState.addListener(state -> {
+            if (state.isEmpty() || state.tablet) return;
+            currentJid = state.getRawJid();
+            currentScreen = "conversation";
         });
 
         // hook messages
@@ -131,7 +132,7 @@ public class SeenTick extends Feature {
                 var list = (List<?>) XposedHelpers.getObjectField(param.args[0], fieldList.getName());
                 var object = list.get(position);
                 if (!FMessageWpp.TYPE.isInstance(object)) {
-                    var fmessageField = ReflectionUtils.findFieldUsingFilter(object.getClass(), field -> FMessageWpp.TYPE.isAssignableFrom(field.getType()));
+                    var fmessageField = ReflectionUtils.findFieldUsingFilter(object.getClass(), "fmessage", FMESSAGE_FIELD);
                     object = fmessageField.get(object);
                 }
                 var fMessage = new FMessageWpp(object);
@@ -162,12 +163,12 @@ public class SeenTick extends Feature {
             XposedBridge.hookMethod(viewButtonMethod, new XC_MethodHook() {
                 @Override
                 protected void afterHookedMethod(MethodHookParam param) throws Throwable {
-                    if (!prefs.getBoolean("hidestatusview", false)) return;
+                    if (!HookConfig.get().hideStatusView) return;
                     var fMessageField = ReflectionUtils.getFieldByExtendType(viewStatusField.getDeclaringClass(), FMessageWpp.TYPE);
                     var fMessageObj = ReflectionUtils.getObjectField(fMessageField, param.thisObject);
                     if (fMessageObj == null) {
                         var instance = ReflectionUtils.getObjectField(viewStatusField, param.thisObject);
-                        fMessageField = ReflectionUtils.findFieldUsingFilterIfExists(instance.getClass(), field1 -> FMessageWpp.TYPE.isAssignableFrom(field1.getType()));
+                        fMessageField = ReflectionUtils.findFieldUsingFilterIfExists(instance.getClass(), "fmessage", FMESSAGE_FIELD);
                         if (fMessageField != null) {
                             fMessageObj = ReflectionUtils.getObjectField(fMessageField, instance);
                         }
@@ -178,7 +179,7 @@ public class SeenTick extends Feature {
                     }
                     var fMessage = new FMessageWpp(fMessageObj);
                     var key = fMessage.getKey();
-                    if (key.isFromMe) return;
+                    if (key.isFromMe()) return;
                     var view = (View) param.getResult();
                     var contentView = (LinearLayout) view.findViewById(Utils.getID("bottom_sheet", "id"));
                     var buttonImage = new ImageView(view.getContext());
@@ -195,14 +196,14 @@ public class SeenTick extends Feature {
                     buttonImage.setBackground(border);
                     contentView.setOrientation(LinearLayout.HORIZONTAL);
                     contentView.addView(buttonImage, 0);
-                    messageMap.put(key.messageID, buttonImage);
+                    messageMap.put(key.getMessageID(), buttonImage);
                     buttonImage.setOnClickListener(v -> CompletableFuture.runAsync(() -> {
                         Utils.showToast(view.getContext().getString(ResId.string.sending_read_blue_tick), Toast.LENGTH_SHORT);
                         sendBlueTickStatus(currentJid);
                         setSeenButton(buttonImage, true);
                     }));
                     CompletableFuture.runAsync(() -> {
-                        var seen = MessageStore.getInstance().isReadMessageStatus(key.messageID);
+                        var seen = MessageStore.getInstance().isReadMessageStatus(key.getMessageID());
                         setSeenButton(buttonImage, seen);
                     });
                 }
@@ -214,7 +215,7 @@ public class SeenTick extends Feature {
                         @Override
                         public MenuItem addMenu(Menu menu, FMessageWpp fMessage) {
                             if (menu.findItem(ResId.string.send_blue_tick) != null) return null;
-                            if (fMessage.getKey().isFromMe) return null;
+                            if (fMessage.getKey().isFromMe()) return null;
                             return menu.add(0, ResId.string.send_blue_tick, 0, ResId.string.send_blue_tick);
                         }
 
@@ -251,7 +252,7 @@ public class SeenTick extends Feature {
                     @Override
                     public MenuItem addMenu(Menu menu, FMessageWpp fMessage) {
                         if (menu.findItem(ResId.string.read_all_mark_as_read) != null) return null;
-                        if (fMessage.getKey().isFromMe) return null;
+                        if (fMessage.getKey().isFromMe()) return null;
                         return menu.add(0, ResId.string.read_all_mark_as_read, 0, ResId.string.read_all_mark_as_read);
                     }
 
@@ -268,8 +269,8 @@ public class SeenTick extends Feature {
                                     obj = fieldFMessage.get(obj);
                                 }
                                 var fMessage = new FMessageWpp(obj);
-                                var messageId = fMessage.getKey().messageID;
-                                if (!fMessage.getKey().isFromMe) {
+                                var messageId = fMessage.getKey().getMessageID();
+                                if (!fMessage.getKey().isFromMe()) {
                                     statuses.add(fMessage);
                                 }
                                 var view = messageMap.get(messageId);
@@ -314,8 +315,8 @@ public class SeenTick extends Feature {
                 MenuItem item = menu.add(0, 0, 0, ResId.string.send_blue_tick).setIcon(Utils.getID("ic_notif_mark_read", "drawable"));
                 if (ticktype == 1) item.setShowAsAction(MenuItem.SHOW_AS_ACTION_ALWAYS);
                 item.setOnMenuItemClickListener(item1 -> {
-                    var jid = WppCore.getRawString(fMessage.getKey().remoteJid);
-                    var messageID = fMessage.getKey().messageID;
+                    var jid = WppCore.getRawString(fMessage.getKey().getRemoteJid());
+                    var messageID = fMessage.getKey().getMessageID();
                     MessageHistory.getInstance().updateViewedMessage(jid, messageID, MessageHistory.MessageType.VIEW_ONCE_TYPE, true);
                     MessageHistory.getInstance().updateViewedMessage(jid, messageID, MessageHistory.MessageType.MESSAGE_TYPE, true);
                     sendBlueTickMedia(fMessage);
@@ -342,8 +343,8 @@ public class SeenTick extends Feature {
                                 var fMessageObj = WppCore.getFMessageFromKey(keyMessage);
                                 if (fMessageObj == null) return;
                                 var fMessage = new FMessageWpp(fMessageObj);
-                                var jid = WppCore.getRawString(fMessage.getKey().remoteJid);
-                                var messageID = fMessage.getKey().messageID;
+                                var jid = WppCore.getRawString(fMessage.getKey().getRemoteJid());
+                                var messageID = fMessage.getKey().getMessageID();
                                 MessageHistory.getInstance().updateViewedMessage(jid, messageID, MessageHistory.MessageType.VIEW_ONCE_TYPE, true);
                                 MessageHistory.getInstance().updateViewedMessage(jid, messageID, MessageHistory.MessageType.MESSAGE_TYPE, true);
                                 sendBlueTickMedia(fMessage);
@@ -373,8 +374,8 @@ public class SeenTick extends Feature {
 
                 if (Objects.equals(currentScreen, "status") && !rawJid.contains("status")) {
                     if (statuses.isEmpty()) return;
-                    MessageStore.getInstance().storeMessageRead(statuses.valueAt(0).getKey().messageID);
-                    var view = messageMap.get(statuses.valueAt(0).getKey().messageID);
+                    MessageStore.getInstance().storeMessageRead(statuses.valueAt(0).getKey().getMessageID());
+                    var view = messageMap.get(statuses.valueAt(0).getKey().getMessageID());
                     if (view != null) view.post(() -> setSeenButton(view, true));
                     sendBlueTickStatus(currentJid);
                 } else {
@@ -387,7 +388,7 @@ public class SeenTick extends Feature {
 
     private static void updateMessageStatusView(String jid, List<FMessageWpp> messages) {
         for (var msg : messages) {
-            MessageHistory.getInstance().updateViewedMessage(jid, msg.getKey().messageID, MessageHistory.MessageType.MESSAGE_TYPE, true);
+            MessageHistory.getInstance().updateViewedMessage(jid, msg.getKey().getMessageID(), MessageHistory.MessageType.MESSAGE_TYPE, true);
         }
         HideSeenView.updateAllBubbleViews();
     }
@@ -422,8 +423,8 @@ public class SeenTick extends Feature {
         try {
             HashMap<Object, List<String>> messageMap = new HashMap<>();
             for (FMessageWpp message : messages) {
-                var userJid = WppCore.isGroup(jid) ? message.getUserJid() : message.getKey().remoteJid;
-                messageMap.computeIfAbsent(userJid, k -> new ArrayList<>()).add(message.getKey().messageID);
+                var userJid = WppCore.isGroup(jid) ? message.getUserJid() : message.getKey().getRemoteJid();
+                messageMap.computeIfAbsent(userJid, k -> new ArrayList<>()).add(message.getKey().getMessageID());
             }
             var userJidTarget = WppCore.createUserJid(jid);
 
@@ -449,7 +450,7 @@ public class SeenTick extends Feature {
         CompletableFuture.runAsync(() -> {
             if (statuses.isEmpty() || currentJid == null || currentJid.equals("status_me")) return;
             try {
-                var arr_s = statuses.stream().map(item -> item.getKey().messageID).toArray(String[]::new);
+                var arr_s = statuses.stream().map(item -> item.getKey().getMessageID()).toArray(String[]::new);
                 Arrays.stream(arr_s).forEach(s -> MessageStore.getInstance().storeMessageRead(s));
                 var userJidSender = WppCore.createUserJid("status@broadcast");
                 var userJid = WppCore.createUserJid(currentJid);
@@ -466,7 +467,7 @@ public class SeenTick extends Feature {
     private void sendBlueTickMedia(FMessageWpp fMessage) {
         CompletableFuture.runAsync(() -> {
             try {
-                var userJid = fMessage.getKey().remoteJid;
+                var userJid = fMessage.getKey().getRemoteJid();
                 var rawJid = WppCore.getRawString(userJid);
                 Object participant = null;
                 if (WppCore.isGroup(rawJid)) {
@@ -476,7 +477,7 @@ public class SeenTick extends Feature {
                 var constructor = sendPlayerClass.getDeclaredConstructors()[0];
                 var classParticipantInfo = constructor.getParameterTypes()[0];
                 var rowsId = new Long[]{fMessage.getRowId()};
-                var messageId = fMessage.getKey().messageID;
+                var messageId = fMessage.getKey().getMessageID();
                 constructor = classParticipantInfo.getDeclaredConstructors()[0];
                 var participantInfo = constructor.newInstance(userJid, participant, rowsId, new String[]{messageId});
                 var sendJob = XposedHelpers.newInstance(sendPlayerClass, participantInfo, false);
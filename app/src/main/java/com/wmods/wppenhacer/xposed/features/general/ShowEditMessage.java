@@ -5,7 +5,6 @@ import android.content.Context;
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.view.View;
-import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
@@ -13,10 +12,8 @@ import android.widget.ListView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.core.widget.NestedScrollView;
 
 import com.wmods.wppenhacer.adapter.MessageAdapter;
-import com.wmods.wppenhacer.views.NoScrollListView;
 import com.wmods.wppenhacer.xposed.core.Feature;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.components.FMessageWpp;
@@ -28,8 +25,12 @@ import com.wmods.wppenhacer.xposed.utils.ReflectionUtils;
 import com.wmods.wppenhacer.xposed.utils.ResId;
 import com.wmods.wppenhacer.xposed.utils.Utils;
 
-import java.util.ArrayList;
+import java.lang.reflect.Method;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XSharedPreferences;
@@ -38,6 +39,10 @@ import de.robv.android.xposed.XposedHelpers;
 
 public class ShowEditMessage extends Feature {
 
+    // Single thread so the original text and the edits of a message are stored in order
+    private static final ExecutorService captureExecutor = Executors.newSingleThreadExecutor();
+    private static final Map<Class<?>, Method> textAccessors = new ConcurrentHashMap<>();
+
     public ShowEditMessage(@NonNull ClassLoader loader, @NonNull XSharedPreferences preferences) {
         super(loader, preferences);
     }
@@ -74,25 +79,25 @@ public class ShowEditMessage extends Feature {
                 long timestamp = XposedHelpers.getLongField(invoked, "A00");
                 var fMessage = new FMessageWpp(param.args[0]);
                 long id = fMessage.getRowId();
+                // msgstore still holds the text from before this edit, so it has to be read here
                 var origMessage = MessageStore.getInstance().getCurrentMessageByID(id);
                 String newMessage = fMessage.getMessageStr();
                 if (newMessage == null) {
-                    var methods = ReflectionUtils.findAllMethodsUsingFilter(param.args[0].getClass(), method -> method.getReturnType() == String.class && ReflectionUtils.isOverridden(method));
-                    for (var method : methods) {
-                        newMessage = (String) method.invoke(param.args[0]);
-                        if (newMessage != null) break;
-                    }
+                    newMessage = getTextFallback(param.args[0]);
                     if (newMessage == null) return;
                 }
-                try {
-                    var message = MessageHistory.getInstance().getMessages(id);
-                    if (message == null) {
-                        MessageHistory.getInstance().insertMessage(id, origMessage, 0);
+                var rawJid = WppCore.getRawString(fMessage.getKey().getRemoteJid());
+                var editedMessage = newMessage;
+                captureExecutor.execute(() -> {
+                    try {
+                        if (MessageHistory.getInstance().countMessages(id) == 0) {
+                            MessageHistory.getInstance().insertMessage(id, rawJid, origMessage, 0);
+                        }
+                        MessageHistory.getInstance().insertMessage(id, rawJid, editedMessage, timestamp);
+                    } catch (Exception e) {
+                        logDebug(e);
                     }
-                    MessageHistory.getInstance().insertMessage(id, newMessage, timestamp);
-                } catch (Exception e) {
-                    logDebug(e);
-                }
+                });
             }
         });
 
@@ -109,11 +114,14 @@ public class ShowEditMessage extends Feature {
                             var messageObj = XposedHelpers.callMethod(param.thisObject, "getFMessage");
                             var fMesage = new FMessageWpp(messageObj);
                             long id = fMesage.getRowId();
-                            var messages = MessageHistory.getInstance().getMessages(id);
-                            if (messages == null) {
-                                messages = new ArrayList<>();
-                            }
-                            showBottomDialog(messages);
+                            // queued behind pending captures, so the latest edit is counted too
+                            captureExecutor.execute(() -> {
+                                try {
+                                    showBottomDialog(id, MessageHistory.getInstance().countMessages(id));
+                                } catch (Exception e) {
+                                    logDebug(e);
+                                }
+                            });
                         } catch (Exception exception0) {
                             logDebug(exception0);
                         }
@@ -124,17 +132,33 @@ public class ShowEditMessage extends Feature {
 
     }
 
+    /**
+     * Reads the text of messages whose type does not expose it through getMessageStr. The
+     * accessor that worked is remembered per class so the scan runs once per message type.
+     */
+    private static String getTextFallback(Object message) throws Exception {
+        var cached = textAccessors.get(message.getClass());
+        if (cached != null) {
+            var text = (String) cached.invoke(message);
+            if (text != null) return text;
+        }
+        var methods = ReflectionUtils.findAllMethodsUsingFilter(message.getClass(), method -> method.getReturnType() == String.class && ReflectionUtils.isOverridden(method));
+        for (var method : methods) {
+            var text = (String) method.invoke(message);
+            if (text != null) {
+                textAccessors.put(message.getClass(), method);
+                return text;
+            }
+        }
+        return null;
+    }
+
     @SuppressLint("SetTextI18n")
-    private void showBottomDialog(ArrayList<MessageHistory.MessageItem> messages) {
+    private void showBottomDialog(long rowId, int count) {
         Objects.requireNonNull(WppCore.getCurrentConversation()).runOnUiThread(() -> {
             var ctx = (Context) WppCore.getCurrentConversation();
 
             var dialog = WppCore.createBottomDialog(ctx);
-            // NestedScrollView
-            NestedScrollView nestedScrollView0 = new NestedScrollView(ctx, null);
-            nestedScrollView0.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
-            nestedScrollView0.setFillViewport(true);
-            nestedScrollView0.setFitsSystemWindows(true);
             // Main Layout
             LinearLayout linearLayout = new LinearLayout(ctx);
             linearLayout.setOrientation(LinearLayout.VERTICAL);
@@ -158,10 +182,10 @@ public class ShowEditMessage extends Feature {
             titleView.setTypeface(null, Typeface.BOLD);
             titleView.setText(ResId.string.edited_history);
 
-            // List View
-            var adapter = new MessageAdapter(ctx, messages);
-            ListView listView = new NoScrollListView(ctx);
-            LinearLayout.LayoutParams layoutParams2 = new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.MATCH_PARENT);
+            // List View, scrolls on its own so rows are recycled and pages load on demand
+            var adapter = new MessageAdapter(ctx, rowId, count);
+            ListView listView = new ListView(ctx);
+            LinearLayout.LayoutParams layoutParams2 = new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, Utils.getApplication().getResources().getDisplayMetrics().heightPixels / 2);
             layoutParams2.weight = 1.0f;
             listView.setLayoutParams(layoutParams2);
             listView.setAdapter(adapter);
@@ -187,8 +211,7 @@ public class ShowEditMessage extends Feature {
             linearLayout.addView(titleView);
             linearLayout.addView(listView);
             linearLayout.addView(okButton);
-            nestedScrollView0.addView(linearLayout);
-            dialog.setContentView(nestedScrollView0);
+            dialog.setContentView(linearLayout);
             dialog.setCanceledOnTouchOutside(true);
             dialog.showDialog();
         });
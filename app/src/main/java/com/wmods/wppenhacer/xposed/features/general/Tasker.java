@@ -11,6 +11,7 @@ import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 
 import com.wmods.wppenhacer.xposed.core.Feature;
+import com.wmods.wppenhacer.xposed.core.HookDispatcher;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.components.FMessageWpp;
 import com.wmods.wppenhacer.xposed.core.devkit.Unobfuscator;
@@ -64,13 +65,14 @@ public class Tasker extends Feature {
     public void hookReceiveMessage() throws Throwable {
         var method = Unobfuscator.loadReceiptMethod(classLoader);
 
-        XposedBridge.hookMethod(method, new XC_MethodHook() {
+        // Ahead of HideSeen/HideReceipt so the receipt type is read before they rewrite it
+        HookDispatcher.hook(method, this, HookDispatcher.PRIORITY_DEFAULT + 1, new HookDispatcher.Listener() {
             @Override
-            protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+            public void beforeHookedMethod(XC_MethodHook.MethodHookParam param) throws Throwable {
                 if (param.args[4] == "sender" || param.args[1] == null || param.args[3] == null)
                     return;
                 var fMessage = new FMessageWpp(WppCore.getFMessageFromKey(param.args[3]));
-                var userJid = fMessage.getKey().remoteJid;
+                var userJid = fMessage.getKey().getRemoteJid();
                 var rawJid = WppCore.getRawString(userJid);
                 var name = WppCore.getContactName(userJid);
                 var number = WppCore.stripJID(rawJid);
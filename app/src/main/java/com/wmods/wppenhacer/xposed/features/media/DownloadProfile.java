@@ -1,15 +1,14 @@
 package com.wmods.wppenhacer.xposed.features.media;
 
-import android.text.TextUtils;
 import android.view.Menu;
 import android.view.MenuItem;
-import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 
 import com.wmods.wppenhacer.xposed.core.Feature;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.devkit.Unobfuscator;
+import com.wmods.wppenhacer.xposed.core.download.MediaSaver;
 import com.wmods.wppenhacer.xposed.utils.ReflectionUtils;
 import com.wmods.wppenhacer.xposed.utils.ResId;
 import com.wmods.wppenhacer.xposed.utils.Utils;
@@ -52,12 +51,7 @@ public class DownloadProfile extends Feature {
                         return true;
                     }
                     var name = Utils.generateName(jidObj, "jpg");
-                    var error = Utils.copyFile(file, destPath, name);
-                    if (TextUtils.isEmpty(error)) {
-                        Toast.makeText(Utils.getApplication(), Utils.getApplication().getString(ResId.string.saved_to) + destPath, Toast.LENGTH_LONG).show();
-                    } else {
-                        Toast.makeText(Utils.getApplication(), Utils.getApplication().getString(ResId.string.error_when_saving_try_again) + " " + error, Toast.LENGTH_LONG).show();
-                    }
+                    MediaSaver.save(file, destPath, name, MediaSaver.PRIORITY_USER);
                     return true;
                 });
             }
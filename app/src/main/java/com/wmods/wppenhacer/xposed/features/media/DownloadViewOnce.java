@@ -1,7 +1,6 @@
 package com.wmods.wppenhacer.xposed.features.media;
 
 import android.annotation.SuppressLint;
-import android.text.TextUtils;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.widget.Toast;
@@ -12,6 +11,7 @@ import com.wmods.wppenhacer.xposed.core.Feature;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.components.FMessageWpp;
 import com.wmods.wppenhacer.xposed.core.devkit.Unobfuscator;
+import com.wmods.wppenhacer.xposed.core.download.MediaSaver;
 import com.wmods.wppenhacer.xposed.utils.ReflectionUtils;
 import com.wmods.wppenhacer.xposed.utils.ResId;
 import com.wmods.wppenhacer.xposed.utils.Utils;
@@ -29,16 +29,11 @@ public class DownloadViewOnce extends Feature {
         super(classLoader, preferences);
     }
 
-    private static void downloadFile(Object userJid, File file) throws Exception {
+    private static void downloadFile(Object userJid, File file, long rowId) throws Exception {
         var dest = Utils.getDestination("View Once");
         var fileExtension = file.getAbsolutePath().substring(file.getAbsolutePath().lastIndexOf(".") + 1);
         var name = Utils.generateName(userJid, fileExtension);
-        var error = Utils.copyFile(file, dest, name);
-        if (TextUtils.isEmpty(error)) {
-            Utils.showToast(Utils.getApplication().getString(ResId.string.saved_to) + dest, Toast.LENGTH_LONG);
-        } else {
-            Utils.showToast(Utils.getApplication().getString(ResId.string.error_when_saving_try_again) + ":" + error, Toast.LENGTH_LONG);
-        }
+        MediaSaver.save(file, dest, name, MediaSaver.PRIORITY_USER, rowId);
     }
 
     @Override
@@ -73,7 +68,7 @@ public class DownloadViewOnce extends Feature {
                     item.setOnMenuItemClickListener(item1 -> {
                         try {
                             var file = fMessage.getMediaFile();
-                            downloadFile(fMessage.getKey().remoteJid, file);
+                            downloadFile(fMessage.getKey().getRemoteJid(), file, fMessage.getRowId());
                         } catch (Exception e) {
                             Utils.showToast(e.getMessage(), Toast.LENGTH_LONG);
                         }
@@ -99,9 +94,9 @@ public class DownloadViewOnce extends Feature {
                                     var fmessageObj = WppCore.getFMessageFromKey(keyMessageObj);
                                     var fmessage = new FMessageWpp(fmessageObj);
                                     var file = fmessage.getMediaFile();
-                                    var userJid = fmessage.getKey().remoteJid;
+                                    var userJid = fmessage.getKey().getRemoteJid();
                                     try {
-                                        downloadFile(userJid, file);
+                                        downloadFile(userJid, file, fmessage.getRowId());
                                     } catch (Exception e) {
                                         Utils.showToast(e.getMessage(), Toast.LENGTH_LONG);
                                     }
@@ -4,7 +4,6 @@ import static com.wmods.wppenhacer.xposed.features.general.MenuStatus.menuStatus
 
 import android.content.Intent;
 import android.net.Uri;
-import android.text.TextUtils;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.widget.Toast;
@@ -15,6 +14,7 @@ import com.wmods.wppenhacer.xposed.core.Feature;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.components.FMessageWpp;
 import com.wmods.wppenhacer.xposed.core.devkit.Unobfuscator;
+import com.wmods.wppenhacer.xposed.core.download.MediaSaver;
 import com.wmods.wppenhacer.xposed.features.general.MenuStatus;
 import com.wmods.wppenhacer.xposed.utils.MimeTypeUtils;
 import com.wmods.wppenhacer.xposed.utils.ResId;
@@ -23,6 +23,7 @@ import com.wmods.wppenhacer.xposed.utils.Utils;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import de.robv.android.xposed.XSharedPreferences;
 import de.robv.android.xposed.XposedHelpers;
@@ -42,7 +43,7 @@ public class StatusDownload extends Feature {
             @Override
             public MenuItem addMenu(Menu menu, FMessageWpp fMessage) {
                 if (menu.findItem(ResId.string.download) != null) return null;
-                if (fMessage.getKey().isFromMe) return null;
+                if (fMessage.getKey().isFromMe()) return null;
                 if (!fMessage.isMediaFile()) return null;
                 return menu.add(0, ResId.string.download, 0, ResId.string.download);
             }
@@ -54,12 +55,28 @@ public class StatusDownload extends Feature {
         };
         menuStatuses.add(downloadStatus);
 
+        var downloadAllStatus = new MenuStatus.MenuItemStatus() {
+
+            @Override
+            public MenuItem addMenu(Menu menu, FMessageWpp fMessage) {
+                if (menu.findItem(ResId.string.download_all) != null) return null;
+                if (fMessage.getKey().isFromMe()) return null;
+                return menu.add(0, ResId.string.download_all, 0, ResId.string.download_all);
+            }
+
+            @Override
+            public void onClick(MenuItem item, Object fragmentInstance, FMessageWpp fMessageWpp) {
+                downloadAll(MenuStatus.getStatuses(fragmentInstance));
+            }
+        };
+        menuStatuses.add(downloadAllStatus);
+
 
         var sharedMenu = new MenuStatus.MenuItemStatus() {
 
             @Override
             public MenuItem addMenu(Menu menu, FMessageWpp fMessage) {
-                if (fMessage.getKey().isFromMe) return null;
+                if (fMessage.getKey().isFromMe()) return null;
                 if (menu.findItem(ResId.string.share_as_status) != null) return null;
                 return menu.add(0, ResId.string.share_as_status, 0, ResId.string.share_as_status);
             }
@@ -108,16 +125,33 @@ public class StatusDownload extends Feature {
             var fileType = file.getName().substring(file.getName().lastIndexOf(".") + 1);
             var destination = getStatusDestination(file);
             var name = Utils.generateName(userJid, fileType);
-            var error = Utils.copyFile(file, destination, name);
-            if (TextUtils.isEmpty(error)) {
-                Utils.showToast(Utils.getApplication().getString(ResId.string.saved_to) + destination, Toast.LENGTH_SHORT);
-            } else {
+            MediaSaver.save(file, destination, name, MediaSaver.PRIORITY_USER, fMessage.getRowId());
+        } catch (Throwable e) {
+            Utils.showToast(e.getMessage(), Toast.LENGTH_SHORT);
+        }
+    }
 
-                Utils.showToast(Utils.getApplication().getString(ResId.string.error_when_saving_try_again) + ": " + error, Toast.LENGTH_SHORT);
+    private void downloadAll(List<FMessageWpp> statuses) {
+        var files = new ArrayList<File>();
+        var destinations = new ArrayList<String>();
+        var names = new ArrayList<String>();
+        var rowIds = new long[statuses.size()];
+        try {
+            for (var fMessage : statuses) {
+                if (!fMessage.isMediaFile()) continue;
+                var file = fMessage.getMediaFile();
+                if (file == null) continue;
+                var fileType = file.getName().substring(file.getName().lastIndexOf(".") + 1);
+                rowIds[files.size()] = fMessage.getRowId();
+                files.add(file);
+                destinations.add(getStatusDestination(file));
+                names.add(Utils.generateName(fMessage.getUserJid(), fileType));
             }
         } catch (Throwable e) {
             Utils.showToast(e.getMessage(), Toast.LENGTH_SHORT);
+            return;
         }
+        MediaSaver.saveAll(files, destinations, names, rowIds);
     }
 
     @NonNull
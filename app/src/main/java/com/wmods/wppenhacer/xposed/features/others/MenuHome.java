@@ -3,8 +3,11 @@ package com.wmods.wppenhacer.xposed.features.others;
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.Intent;
+import android.text.TextUtils;
+import android.text.format.DateUtils;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.widget.EditText;
 
 import androidx.annotation.NonNull;
 
@@ -12,12 +15,15 @@ import com.wmods.wppenhacer.BuildConfig;
 import com.wmods.wppenhacer.xposed.core.Feature;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.components.AlertDialogWpp;
+import com.wmods.wppenhacer.xposed.core.db.MessageSearch;
 import com.wmods.wppenhacer.xposed.utils.DesignUtils;
 import com.wmods.wppenhacer.xposed.utils.ResId;
 import com.wmods.wppenhacer.xposed.utils.Utils;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XSharedPreferences;
@@ -49,6 +55,9 @@ public class MenuHome extends Feature {
         // freeze last seen
         menuItems.add((menu, activity) -> InsertFreezeLastSeenOption(menu, activity, action));
 
+        // search edited and deleted messages
+        menuItems.add(this::InsertSearchMessagesOption);
+
         // open WAE
         menuItems.add(this::InsertOpenWae);
 
@@ -69,6 +78,60 @@ public class MenuHome extends Feature {
         });
     }
 
+    private void InsertSearchMessagesOption(Menu menu, Activity activity) {
+        // only useful when one of the stores behind the search is being filled
+        if (!prefs.getBoolean("antieditmessages", false) && "0".equals(prefs.getString("antirevoke", "0"))) return;
+        var itemMenu = menu.add(0, 0, 0, ResId.string.search_messages);
+        itemMenu.setOnMenuItemClickListener(item -> {
+            var input = new EditText(activity);
+            input.setSingleLine();
+            new AlertDialogWpp(activity)
+                    .setTitle(activity.getString(ResId.string.search_messages))
+                    .setView(input)
+                    .setPositiveButton(activity.getString(android.R.string.search_go), (dialog, which) -> {
+                        var query = input.getText().toString();
+                        Utils.getExecutor().execute(() -> {
+                            // contact names may need wa.db queries, so the rows are built here
+                            var items = formatHits(MessageSearch.search(query, null, 0, 0, 100));
+                            activity.runOnUiThread(() -> showSearchResults(activity, items));
+                        });
+                    })
+                    .setNegativeButton(activity.getString(ResId.string.cancel), (dialog, which) -> dialog.dismiss())
+                    .show();
+            return true;
+        });
+    }
+
+    private static CharSequence[] formatHits(List<MessageSearch.Hit> hits) {
+        var names = new HashMap<String, String>();
+        var items = new CharSequence[hits.size()];
+        for (int i = 0; i < items.length; i++) {
+            var hit = hits.get(i);
+            var time = hit.timestamp > 0 ? DateUtils.getRelativeTimeSpanString(hit.timestamp) + " · " : "";
+            var name = names.computeIfAbsent(String.valueOf(hit.jid), jid -> getSenderName(hit.jid));
+            items[i] = time + name + ": " + hit.text;
+        }
+        return items;
+    }
+
+    private static void showSearchResults(Activity activity, CharSequence[] items) {
+        if (activity.isFinishing()) return;
+        var dialog = new AlertDialogWpp(activity).setTitle(activity.getString(ResId.string.search_messages));
+        if (items.length == 0) {
+            dialog.setMessage(activity.getString(ResId.string.no_messages_found));
+        } else {
+            dialog.setItems(items, (d, which) -> d.dismiss());
+        }
+        dialog.show();
+    }
+
+    private static String getSenderName(String jid) {
+        if (TextUtils.isEmpty(jid)) return "?";
+        // deleted messages keep the stripped JID, edit history the raw one
+        var name = jid.contains("@") ? WppCore.getContactName(WppCore.createUserJid(jid)) : "";
+        return TextUtils.isEmpty(name) ? WppCore.stripJID(jid) : name;
+    }
+
     private void InsertGhostModeOption(Menu menu, Activity activity, boolean newSettings) {
         var ghostmode = WppCore.getPrivBoolean("ghostmode", false);
         if (!prefs.getBoolean("ghostmode", true)) {
@@ -10,6 +10,7 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 
 import com.wmods.wppenhacer.xposed.core.Feature;
+import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.components.AlertDialogWpp;
 import com.wmods.wppenhacer.xposed.core.devkit.Unobfuscator;
 import com.wmods.wppenhacer.xposed.utils.ResId;
@@ -18,9 +19,11 @@ import com.wmods.wppenhacer.xposed.utils.Utils;
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XSharedPreferences;
 import de.robv.android.xposed.XposedBridge;
-import de.robv.android.xposed.XposedHelpers;
 
 public class Stickers extends Feature {
+    // the scope whose click hook may act, set while a sticker is being sent on this thread
+    private final ThreadLocal<HookScope> sendingScope = new ThreadLocal<>();
+
     public Stickers(@NonNull ClassLoader classLoader, @NonNull XSharedPreferences preferences) {
         super(classLoader, preferences);
     }
@@ -29,14 +32,21 @@ public class Stickers extends Feature {
     public void doHook() throws Throwable {
         if (!prefs.getBoolean("alertsticker", false)) return;
         var sendStickerMethod = Unobfuscator.loadSendStickerMethod(classLoader);
+        var setOnClickListener = View.class.getDeclaredMethod("setOnClickListener", View.OnClickListener.class);
         XposedBridge.hookMethod(sendStickerMethod, new XC_MethodHook() {
-            private Unhook unhooked;
 
             @Override
             protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                unhooked = XposedHelpers.findAndHookMethod(View.class, "setOnClickListener", View.OnClickListener.class, new XC_MethodHook() {
+                var activity = WppCore.getCurrentActivity();
+                if (activity == null) return;
+                // hooked once per screen instead of per send, and removed when the screen stops
+                var scope = openScope(activity);
+                sendingScope.set(scope);
+                if (!scope.isEmpty()) return;
+                scope.hook(setOnClickListener, new XC_MethodHook() {
                     @Override
                     protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+                        if (sendingScope.get() != scope) return;
                         View.OnClickListener mCaptureOnClickListener = (View.OnClickListener) param.args[0];
                         if (mCaptureOnClickListener == null) return;
                         if (!(param.thisObject instanceof ViewGroup)) return;
@@ -79,7 +89,7 @@ public class Stickers extends Feature {
 
             @Override
             protected void afterHookedMethod(MethodHookParam param) throws Throwable {
-                unhooked.unhook();
+                sendingScope.remove();
             }
 
         });
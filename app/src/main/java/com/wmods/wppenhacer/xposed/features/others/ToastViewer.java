@@ -1,6 +1,5 @@
 package com.wmods.wppenhacer.xposed.features.others;
 
-import android.database.sqlite.SQLiteDatabase;
 import android.text.TextUtils;
 import android.widget.Toast;
 
@@ -16,14 +15,20 @@ import com.wmods.wppenhacer.xposed.utils.ReflectionUtils;
 import com.wmods.wppenhacer.xposed.utils.ResId;
 import com.wmods.wppenhacer.xposed.utils.Utils;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XSharedPreferences;
@@ -32,50 +37,43 @@ import de.robv.android.xposed.XposedBridge;
 public class ToastViewer extends Feature {
 
     private static final long MIN_INTERVAL = 1000;
-    private static final Map<String, Long> lastEventTimeMap = new HashMap<>();
+    private static final long BATCH_WINDOW = 300;
+    private static final int MAX_QUERY_ARGS = 500;
+    private static final Map<String, Long> lastEventTimeMap = new ConcurrentHashMap<>();
     private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final ConcurrentLinkedQueue<Receipt> pendingReceipts = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private boolean toastViewedStatus;
+    private boolean toastViewedMessage;
 
     public ToastViewer(@NonNull ClassLoader classLoader, @NonNull XSharedPreferences preferences) {
         super(classLoader, preferences);
-        startCleanupTask();
     }
 
     @Override
     public void doHook() throws Throwable {
 
-        var toastViewedStatus = prefs.getBoolean("toast_viewed_status", false);
-        var toastViewedMessage = prefs.getBoolean("toast_viewed_message", false);
+        toastViewedStatus = prefs.getBoolean("toast_viewed_status", false);
+        toastViewedMessage = prefs.getBoolean("toast_viewed_message", false);
 
+        var jidClass = classLoader.loadClass("com.whatsapp.jid.Jid");
         var onInsertReceipt = Unobfuscator.loadOnInsertReceipt(classLoader);
         XposedBridge.hookMethod(onInsertReceipt, new XC_MethodHook() {
             @Override
             protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
                 int type = ReflectionUtils.getArg(param.args, Integer.class, 0);
-                long id = ReflectionUtils.getArg(param.args, Long.class, 0);
                 if (type != 13) return;
-                var jidClass = classLoader.loadClass("com.whatsapp.jid.Jid");
+                long id = ReflectionUtils.getArg(param.args, Long.class, 0);
                 var PhoneUserJid = ReflectionUtils.getArg(param.args, jidClass, 0);
-                AtomicReference<Object> fmessage = new AtomicReference<>();
                 try {
-                    fmessage.set(ReflectionUtils.getArg(param.args, FMessageWpp.TYPE, 0));
+                    var fmessage = ReflectionUtils.getArg(param.args, FMessageWpp.TYPE, 0);
+                    id = new FMessageWpp(fmessage).getRowId();
                 } catch (Exception ignored) {
                 }
-                CompletableFuture.runAsync(() -> {
-                    var raw = WppCore.getRawString(PhoneUserJid);
-                    var UserJid = WppCore.createUserJid(raw);
-                    var contactName = WppCore.getContactName(UserJid);
-                    var rowId = id;
-
-                    if (TextUtils.isEmpty(contactName)) contactName = WppCore.stripJID(raw);
-
-                    var sql = MessageStore.getInstance().getDatabase();
-
-                    if (fmessage.get() != null) {
-                        rowId = new FMessageWpp(fmessage.get()).getRowId();
-                    }
-
-                    checkDataBase(sql, rowId, contactName, raw, toastViewedMessage, toastViewedStatus);
-                });
+                pendingReceipts.add(new Receipt(id, WppCore.getRawString(PhoneUserJid)));
+                if (flushScheduled.compareAndSet(false, true)) {
+                    scheduler.schedule(ToastViewer.this::flushReceipts, BATCH_WINDOW, TimeUnit.MILLISECONDS);
+                }
             }
         });
     }
@@ -86,45 +84,89 @@ public class ToastViewer extends Feature {
         return "Toast Viewer";
     }
 
-    private synchronized void checkDataBase(SQLiteDatabase sql, long id, String contactName, String raw, boolean toastViewedMessage, boolean toast_viewed_status) {
-        try (var result2 = sql.query("message", null, "_id = ?", new String[]{String.valueOf(id)}, null, null, null)) {
-            if (!result2.moveToNext()) return;
-
-            var participantHash = result2.getString(result2.getColumnIndexOrThrow("participant_hash"));
-            if (participantHash != null) {
-                if (toast_viewed_status) {
-                    Utils.showToast(Utils.getApplication().getString(ResId.string.viewed_your_status, contactName), Toast.LENGTH_LONG);
+    /**
+     * Resolves every receipt received during the batch window with one query per 500 ids and shows
+     * one aggregated toast per receipt kind.
+     */
+    private void flushReceipts() {
+        flushScheduled.set(false);
+        var receipts = new HashMap<Long, Set<String>>();
+        int count = 0;
+        Receipt receipt;
+        while ((receipt = pendingReceipts.poll()) != null) {
+            if (receipt.rawJid == null) continue;
+            receipts.computeIfAbsent(receipt.rowId, k -> new LinkedHashSet<>()).add(receipt.rawJid);
+            count++;
+        }
+        if (receipts.isEmpty()) return;
+        try {
+            var sql = MessageStore.getInstance().getDatabase();
+            if (sql == null) return;
+            var ids = receipts.keySet().stream().map(String::valueOf).toArray(String[]::new);
+            var statusViewers = new LinkedHashMap<String, String>();
+            var messageViewers = new LinkedHashMap<String, String>();
+            var currentJid = WppCore.getCurrentRawJID();
+            long currentTime = System.currentTimeMillis();
+            int queries = 0;
+            // SQLite rejects statements with more than 999 bound arguments
+            for (int start = 0; start < ids.length; start += MAX_QUERY_ARGS, queries++) {
+                var chunk = Arrays.copyOfRange(ids, start, Math.min(ids.length, start + MAX_QUERY_ARGS));
+                var placeholders = TextUtils.join(",", Collections.nCopies(chunk.length, "?"));
+                var query = "SELECT m._id, m.participant_hash IS NOT NULL, c.subject IS NULL AND c._id IS NOT NULL" +
+                        " FROM message m LEFT JOIN chat c ON c._id = m.chat_row_id WHERE m._id IN (" + placeholders + ")";
+                try (var cursor = sql.rawQuery(query, chunk)) {
+                    while (cursor.moveToNext()) {
+                        var raws = receipts.get(cursor.getLong(0));
+                        if (raws == null) continue;
+                        var isStatus = cursor.getInt(1) != 0;
+                        var isPrivateChat = cursor.getInt(2) != 0;
+                        for (var raw : raws) {
+                            if (isStatus) {
+                                statusViewers.putIfAbsent(raw, getContactName(raw));
+                                continue;
+                            }
+                            if (!isPrivateChat || Objects.equals(currentJid, raw) || messageViewers.containsKey(raw)) continue;
+                            var key = raw + "_" + "viewed_message";
+                            Long lastEventTime = lastEventTimeMap.get(key);
+                            if (lastEventTime != null && (currentTime - lastEventTime) < MIN_INTERVAL) continue;
+                            lastEventTimeMap.put(key, currentTime);
+                            messageViewers.put(raw, getContactName(raw));
+                        }
+                    }
                 }
-                Tasker.sendTaskerEvent(contactName, WppCore.stripJID(raw), "viewed_status");
-                return;
             }
+            lastEventTimeMap.values().removeIf(time -> (currentTime - time) >= MIN_INTERVAL);
+            logDebug("Resolved " + count + " receipts with " + queries + " queries");
 
-            if (Objects.equals(WppCore.getCurrentRawJID(), raw)) return;
-
-            var chat_id = result2.getLong(result2.getColumnIndexOrThrow("chat_row_id"));
-            try (var result3 = sql.query("chat", null, "_id = ? AND subject IS NULL", new String[]{String.valueOf(chat_id)}, null, null, null)) {
-                if (!result3.moveToNext()) return;
-
-                var key = raw + "_" + "viewed_message";
-                long currentTime = System.currentTimeMillis();
-                Long lastEventTime = lastEventTimeMap.get(key);
-                if (lastEventTime == null || (currentTime - lastEventTime) >= MIN_INTERVAL) {
-                    lastEventTimeMap.put(key, currentTime);
-                    if (toastViewedMessage) {
-                        Utils.showToast(Utils.getApplication().getString(ResId.string.viewed_your_message, contactName), Toast.LENGTH_LONG);
-                    }
-                    Tasker.sendTaskerEvent(contactName, WppCore.stripJID(raw), "viewed_message");
+            if (!statusViewers.isEmpty()) {
+                if (toastViewedStatus) {
+                    Utils.showToast(Utils.getApplication().getString(ResId.string.viewed_your_status, String.join(", ", statusViewers.values())), Toast.LENGTH_LONG);
                 }
+                statusViewers.forEach((raw, name) -> Tasker.sendTaskerEvent(name, WppCore.stripJID(raw), "viewed_status"));
             }
+            if (!messageViewers.isEmpty()) {
+                if (toastViewedMessage) {
+                    Utils.showToast(Utils.getApplication().getString(ResId.string.viewed_your_message, String.join(", ", messageViewers.values())), Toast.LENGTH_LONG);
+                }
+                messageViewers.forEach((raw, name) -> Tasker.sendTaskerEvent(name, WppCore.stripJID(raw), "viewed_message"));
+            }
+        } catch (Exception e) {
+            logDebug(e);
         }
     }
 
-    private void startCleanupTask() {
-        scheduler.scheduleWithFixedDelay(() -> {
-            long currentTime = System.currentTimeMillis();
-            synchronized (lastEventTimeMap) {
-                lastEventTimeMap.entrySet().removeIf(entry -> (currentTime - entry.getValue()) >= MIN_INTERVAL);
-            }
-        }, MIN_INTERVAL, MIN_INTERVAL, TimeUnit.MILLISECONDS);
+    private static String getContactName(String raw) {
+        var contactName = WppCore.getContactName(WppCore.createUserJid(raw));
+        return TextUtils.isEmpty(contactName) ? WppCore.stripJID(raw) : contactName;
+    }
+
+    private static class Receipt {
+        final long rowId;
+        final String rawJid;
+
+        Receipt(long rowId, String rawJid) {
+            this.rowId = rowId;
+            this.rawJid = rawJid;
+        }
     }
 }
@@ -7,6 +7,7 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 
 import com.wmods.wppenhacer.xposed.core.Feature;
+import com.wmods.wppenhacer.xposed.core.HookConfig;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.devkit.Unobfuscator;
 import com.wmods.wppenhacer.xposed.features.general.Tasker;
@@ -15,10 +16,6 @@ import com.wmods.wppenhacer.xposed.utils.Utils;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XSharedPreferences;
@@ -56,11 +53,11 @@ public class CallPrivacy extends Feature {
                 if ((boolean) XposedHelpers.callMethod(callinfo, "isCaller")) return;
                 var userJid = XposedHelpers.callMethod(callinfo, "getPeerJid");
                 var callId = XposedHelpers.callMethod(callinfo, "getCallId");
-                var type = Integer.parseInt(prefs.getString("call_privacy", "0"));
+                var config = HookConfig.get();
                 Tasker.sendTaskerEvent(WppCore.getContactName(userJid), WppCore.stripJID(WppCore.getRawString(userJid)), "call_received");
-                var blockCall = checkCallBlock(userJid, PrivacyType.getByValue(type));
+                var blockCall = checkCallBlock(userJid, config);
                 if (!blockCall) return;
-                var rejectType = prefs.getString("call_type", "no_internet");
+                var rejectType = config.callType;
 
                 // Need Instance of VoipManager from WhatsApp 2.24.24.XX
                 Object voipManager = null;
@@ -91,10 +88,10 @@ public class CallPrivacy extends Feature {
         XposedBridge.hookAllMethods(classLoader.loadClass("com.whatsapp.voipcalling.Voip"), "nativeHandleIncomingXmppOffer", new XC_MethodHook() {
             @Override
             protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                if (!prefs.getString("call_type", "no_internet").equals("no_internet")) return;
+                var config = HookConfig.get();
+                if (!config.callType.equals("no_internet")) return;
                 var userJid = param.args[0];
-                var type = Integer.parseInt(prefs.getString("call_privacy", "0"));
-                var block = checkCallBlock(userJid, PrivacyType.getByValue(type));
+                var block = checkCallBlock(userJid, config);
                 if (block) {
                     param.setResult(1);
                 }
@@ -109,7 +106,8 @@ public class CallPrivacy extends Feature {
         super(loader, preferences);
     }
 
-    public boolean checkCallBlock(Object jid, PrivacyType type) throws IllegalAccessException, InvocationTargetException {
+    public boolean checkCallBlock(Object jid, HookConfig config) throws IllegalAccessException, InvocationTargetException {
+        var type = config.callPrivacy;
         var rawPhoneNumber = WppCore.getRawString(jid);
         rawPhoneNumber = rawPhoneNumber.replaceFirst("\\.[\\d:]+@", "@");
         var userJid = WppCore.createUserJid(rawPhoneNumber);
@@ -118,40 +116,24 @@ public class CallPrivacy extends Feature {
 
         if (phoneNumber == null) return false;
 
-        var customprivacy = CustomPrivacy.getJSON(phoneNumber);
-
         if (type == PrivacyType.ALL_BLOCKED) {
-            return customprivacy.optBoolean("BlockCall", true);
+            return CustomPrivacy.getPolicy(phoneNumber, CustomPrivacy.BLOCK_CALL, true);
         }
 
         if (type == PrivacyType.ALL_PERMITTED) {
-            return customprivacy.optBoolean("BlockCall", false);
+            return CustomPrivacy.getPolicy(phoneNumber, CustomPrivacy.BLOCK_CALL, false);
         }
 
         switch (type) {
             case ONLY_UNKNOWN:
-                if (customprivacy.optBoolean("BlockCall", false)) return true;
+                if (CustomPrivacy.getPolicy(phoneNumber, CustomPrivacy.BLOCK_CALL, false)) return true;
                 var contactName = WppCore.getSContactName(userJid, true);
                 return TextUtils.isEmpty(contactName) || contactName.equals(phoneNumber);
             case BACKLIST:
-                if (customprivacy.optBoolean("BlockCall", false)) return true;
-                var callBlockList = prefs.getString("call_block_contacts", "[]");
-                var blockList = Arrays.stream(callBlockList.substring(1, callBlockList.length() - 1).split(", ")).map(String::trim).collect(Collectors.toCollection(ArrayList::new));
-                for (var blockNumber : blockList) {
-                    if (!TextUtils.isEmpty(blockNumber) && Objects.equals(rawPhoneNumber, blockNumber)) {
-                        return true;
-                    }
-                }
-                return false;
+                if (CustomPrivacy.getPolicy(phoneNumber, CustomPrivacy.BLOCK_CALL, false)) return true;
+                return config.callBlockContacts.contains(rawPhoneNumber);
             case WHITELIST:
-                var callWhiteList = prefs.getString("call_white_contacts", "[]");
-                var whiteList = Arrays.stream(callWhiteList.substring(1, callWhiteList.length() - 1).split(", ")).map(String::trim).collect(Collectors.toCollection(ArrayList::new));
-                for (var whiteNumber : whiteList) {
-                    if (!TextUtils.isEmpty(whiteNumber) && Objects.equals(rawPhoneNumber, whiteNumber)) {
-                        return false;
-                    }
-                }
-                return true;
+                return !config.callWhiteContacts.contains(rawPhoneNumber);
         }
         return false;
     }
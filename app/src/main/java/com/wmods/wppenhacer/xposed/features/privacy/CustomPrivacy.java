@@ -19,6 +19,7 @@ import androidx.annotation.NonNull;
 
 import com.wmods.wppenhacer.adapter.CustomPrivacyAdapter;
 import com.wmods.wppenhacer.xposed.core.Feature;
+import com.wmods.wppenhacer.xposed.core.HookConfig;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.components.AlertDialogWpp;
 import com.wmods.wppenhacer.xposed.features.others.MenuHome;
@@ -38,6 +39,15 @@ import de.robv.android.xposed.XSharedPreferences;
 import de.robv.android.xposed.XposedHelpers;
 
 public class CustomPrivacy extends Feature {
+    public static final int HIDE_SEEN = 1;
+    public static final int HIDE_VIEW_STATUS = 1 << 1;
+    public static final int HIDE_RECEIPT = 1 << 2;
+    public static final int HIDE_TYPING = 1 << 3;
+    public static final int HIDE_RECORDING = 1 << 4;
+    public static final int BLOCK_CALL = 1 << 5;
+
+    private static volatile PolicyTable policyTable;
+
     private Method chatUserJidMethod;
     private Method groupUserJidMethod;
 
@@ -48,7 +58,36 @@ public class CustomPrivacy extends Feature {
     public static JSONObject getJSON(String number) {
         if (Objects.equals(Utils.xprefs.getString("custom_privacy_type", "0"), "0") || TextUtils.isEmpty(number))
             return new JSONObject();
-        return WppCore.getPrivJSON(number + "_privacy", new JSONObject());
+        return WppCore.getPrivJSON(number + PolicyTable.PRIVACY_SUFFIX, new JSONObject());
+    }
+
+    /**
+     * Returns the custom privacy value of {@code flag} for {@code number}, or
+     * {@code defaultValue} when the contact has no override for it.
+     */
+    public static boolean getPolicy(String number, int flag, boolean defaultValue) {
+        return (getPolicies(number, defaultValue ? flag : 0) & flag) != 0;
+    }
+
+    /**
+     * Returns the flags in effect for {@code number}: the contact's overrides applied over the
+     * global defaults, using the group defaults when {@code group} is set.
+     */
+    public static int getPolicies(String number, boolean group) {
+        var config = HookConfig.get();
+        return getPolicies(number, group ? config.groupPrivacyDefaults : config.privacyDefaults);
+    }
+
+    private static int getPolicies(String number, int defaults) {
+        if (!HookConfig.get().customPrivacy || TextUtils.isEmpty(number)) return defaults;
+        var table = policyTable;
+        if (table == null) {
+            synchronized (CustomPrivacy.class) {
+                if (policyTable == null) policyTable = new PolicyTable(WppCore.getPrivPrefs());
+                table = policyTable;
+            }
+        }
+        return table.resolve(number, defaults);
     }
 
     @Override
@@ -71,9 +110,6 @@ public class CustomPrivacy extends Feature {
                 @Override
                 public void onChange(Activity activity, ChangeType type) {
                     try {
-                        if (type != ChangeType.STARTED) return;
-                        if (!ContactInfoActivityClass.isInstance(activity) && !GroupInfoActivityClass.isInstance(activity))
-                            return;
                         if (activity.findViewById(0x7f0a9999) != null) return;
                         int id = Utils.getID("contact_info_security_card_layout", "id");
                         ViewGroup infoLayout = activity.getWindow().findViewById(id);
@@ -88,7 +124,8 @@ public class CustomPrivacy extends Feature {
                     }
                 }
             };
-            WppCore.addListenerActivity(hooker);
+            WppCore.addListenerActivity(ContactInfoActivityClass, hooker, WppCore.ActivityChangeState.ChangeType.STARTED);
+            WppCore.addListenerActivity(GroupInfoActivityClass, hooker, WppCore.ActivityChangeState.ChangeType.STARTED);
         } else if (type == 2) {
             var hooker = new XC_MethodHook() {
                 @Override
@@ -3,6 +3,7 @@ package com.wmods.wppenhacer.xposed.features.privacy;
 import androidx.annotation.NonNull;
 
 import com.wmods.wppenhacer.xposed.core.Feature;
+import com.wmods.wppenhacer.xposed.core.HookDispatcher;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.components.FMessageWpp;
 import com.wmods.wppenhacer.xposed.core.db.MessageHistory;
@@ -12,7 +13,6 @@ import com.wmods.wppenhacer.xposed.utils.ReflectionUtils;
 
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XSharedPreferences;
-import de.robv.android.xposed.XposedBridge;
 
 public class HideReceipt extends Feature {
     public HideReceipt(ClassLoader loader, XSharedPreferences preferences) {
@@ -21,9 +21,7 @@ public class HideReceipt extends Feature {
 
     @Override
     public void doHook() throws Exception {
-        var hideReceipt = prefs.getBoolean("hidereceipt", false);
         var ghostmode = WppCore.getPrivBoolean("ghostmode", false);
-        var hideread = prefs.getBoolean("hideread", false);
 
         var method = Unobfuscator.loadReceiptMethod(classLoader);
         logDebug("hook method:" + Unobfuscator.getMethodDescriptor(method));
@@ -32,19 +30,19 @@ public class HideReceipt extends Feature {
         var mInChat = Unobfuscator.loadReceiptInChat(classLoader);
         logDebug("In Chat: " + Unobfuscator.getMethodDescriptor(mInChat));
 
-        XposedBridge.hookMethod(method, new XC_MethodHook() {
+        HookDispatcher.hook(method, this, new HookDispatcher.Listener() {
             @Override
-            protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+            public void beforeHookedMethod(XC_MethodHook.MethodHookParam param) throws Throwable {
                 if (!ReflectionUtils.isCalledFromMethod(method2) && !ReflectionUtils.isCalledFromMethod(mInChat))
                     return;
                 var key = ReflectionUtils.getArg(param.args, FMessageWpp.Key.TYPE, 0);
                 var messageKey = new FMessageWpp.Key(key);
-                var userJid = messageKey.remoteJid;
+                var userJid = messageKey.getRemoteJid();
                 var rawJid = WppCore.getRawString(userJid);
                 var number = WppCore.stripJID(rawJid);
-                var privacy = CustomPrivacy.getJSON(number);
-                var customHideReceipt = privacy.optBoolean("HideReceipt", hideReceipt);
-                var customHideRead = privacy.optBoolean("HideSeen", hideread);
+                var policies = CustomPrivacy.getPolicies(number, false);
+                var customHideReceipt = (policies & CustomPrivacy.HIDE_RECEIPT) != 0;
+                var customHideRead = (policies & CustomPrivacy.HIDE_SEEN) != 0;
                 if (param.args[4] != "sender" && (customHideReceipt || ghostmode)) {
                     if (!ReflectionUtils.isCalledFromMethod(method2) && ReflectionUtils.isCalledFromMethod(mInChat) && !customHideRead) {
                         return;
@@ -55,7 +53,7 @@ public class HideReceipt extends Feature {
                 if (param.args[4] == "inactive") {
                     Object fmessageObj = WppCore.getFMessageFromKey(key);
                     var fmessage = new FMessageWpp(fmessageObj);
-                    var messageId = fmessage.getKey().messageID;
+                    var messageId = fmessage.getKey().getMessageID();
                     MessageHistory.getInstance().insertHideSeenMessage(rawJid, messageId, MessageHistory.MessageType.MESSAGE_TYPE, false);
                     if (fmessage.isViewOnce()) {
                         MessageHistory.getInstance().insertHideSeenMessage(rawJid, messageId, MessageHistory.MessageType.VIEW_ONCE_TYPE, false);
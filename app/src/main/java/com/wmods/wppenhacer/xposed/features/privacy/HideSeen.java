@@ -3,6 +3,7 @@ package com.wmods.wppenhacer.xposed.features.privacy;
 import androidx.annotation.NonNull;
 
 import com.wmods.wppenhacer.xposed.core.Feature;
+import com.wmods.wppenhacer.xposed.core.HookDispatcher;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 import com.wmods.wppenhacer.xposed.core.components.FMessageWpp;
 import com.wmods.wppenhacer.xposed.core.db.MessageHistory;
@@ -34,11 +35,8 @@ public class HideSeen extends Feature {
         log(Unobfuscator.getMethodDescriptor(SendReadReceiptJobMethod));
 
         var ghostmode = WppCore.getPrivBoolean("ghostmode", false);
-        var hideread = prefs.getBoolean("hideread", false);
         var hideaudioseen = prefs.getBoolean("hideaudioseen", false);
         var hideonceseen = prefs.getBoolean("hideonceseen", false);
-        var hideread_group = prefs.getBoolean("hideread_group", false);
-        var hidestatusview = prefs.getBoolean("hidestatusview", false);
 
         XposedBridge.hookMethod(SendReadReceiptJobMethod, new XC_MethodHook() {
             @Override
@@ -54,23 +52,15 @@ public class HideSeen extends Feature {
                 var jid = (String) XposedHelpers.getObjectField(srj, "jid");
                 if (jid == null) return;
                 var number = WppCore.stripJID(jid);
-                var privacy = CustomPrivacy.getJSON(number);
-
-                var customHideRead = privacy.optBoolean("HideSeen", hideread);
                 var isHide = false;
 
-                if (WppCore.isGroup(jid)) {
-                    if (privacy.optBoolean("HideSeen", hideread_group) || ghostmode) {
-                        param.setResult(null);
-                        isHide = true;
-                    }
-                } else if (jid.startsWith("status")) {
+                if (jid.startsWith("status")) {
                     var participant = (String) XposedHelpers.getObjectField(srj, "participant");
-                    var customHideStatusView = CustomPrivacy.getJSON(WppCore.stripJID(participant)).optBoolean("HideViewStatus", hidestatusview);
-                    if (customHideStatusView || ghostmode) {
+                    var policies = CustomPrivacy.getPolicies(WppCore.stripJID(participant), false);
+                    if ((policies & CustomPrivacy.HIDE_VIEW_STATUS) != 0 || ghostmode) {
                         param.setResult(null);
                     }
-                } else if (customHideRead || ghostmode) {
+                } else if ((CustomPrivacy.getPolicies(number, WppCore.isGroup(jid)) & CustomPrivacy.HIDE_SEEN) != 0 || ghostmode) {
                     param.setResult(null);
                     isHide = true;
                 }
@@ -101,21 +91,15 @@ public class HideSeen extends Feature {
         logDebug("Outside Chat", Unobfuscator.getMethodDescriptor(method3));
 
 
-        XposedBridge.hookMethod(ReceiptMethod, new XC_MethodHook() {
+        HookDispatcher.hook(ReceiptMethod, this, new HookDispatcher.Listener() {
             @Override
-            protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+            public void beforeHookedMethod(XC_MethodHook.MethodHookParam param) throws Throwable {
                 if (ReflectionUtils.isCalledFromMethod(method3) || !ReflectionUtils.isCalledFromMethod(hideViewInChatMethod))
                     return;
                 if (!Objects.equals("read", param.args[4])) return;
                 var jid = WppCore.getCurrentRawJID();
                 var number = WppCore.stripJID(jid);
-                var privacy = CustomPrivacy.getJSON(number);
-                var customHideRead = privacy.optBoolean("HideSeen", hideread);
-                if (WppCore.isGroup(jid)) {
-                    if (privacy.optBoolean("HideSeen", hideread_group) || ghostmode) {
-                        param.args[4] = null;
-                    }
-                } else if (customHideRead || ghostmode) {
+                if ((CustomPrivacy.getPolicies(number, WppCore.isGroup(jid)) & CustomPrivacy.HIDE_SEEN) != 0 || ghostmode) {
                     param.args[4] = null;
                 }
 
@@ -123,7 +107,7 @@ public class HideSeen extends Feature {
                     var key = ReflectionUtils.getArg(param.args, FMessageWpp.Key.TYPE, 0);
                     if (key != null) {
                         var fmessage = new FMessageWpp(WppCore.getFMessageFromKey(key));
-                        var messageId = fmessage.getKey().messageID;
+                        var messageId = fmessage.getKey().getMessageID();
                         MessageHistory.getInstance().insertHideSeenMessage(jid, messageId, MessageHistory.MessageType.MESSAGE_TYPE, false);
                         if (fmessage.isViewOnce()) {
                             MessageHistory.getInstance().insertHideSeenMessage(jid, messageId, MessageHistory.MessageType.VIEW_ONCE_TYPE, false);
@@ -148,8 +132,8 @@ public class HideSeen extends Feature {
                     isHide = true;
                 }
                 var key = fMessage.getKey();
-                var jid = key.remoteJid;
-                var messageId = key.messageID;
+                var jid = key.getRemoteJid();
+                var messageId = key.getMessageID();
                 if (isHide) {
                     MessageHistory.getInstance().insertHideSeenMessage(WppCore.getRawString(jid), messageId, MessageHistory.MessageType.MESSAGE_TYPE, false);
                 }
@@ -178,8 +162,8 @@ public class HideSeen extends Feature {
                         isHide = true;
                     }
                     var key = fMessage.getKey();
-                    var jid = key.remoteJid;
-                    var messageId = key.messageID;
+                    var jid = key.getRemoteJid();
+                    var messageId = key.getMessageID();
                     if (isHide) {
                         MessageHistory.getInstance().insertHideSeenMessage(WppCore.getRawString(jid), messageId, MessageHistory.MessageType.MESSAGE_TYPE, false);
                     }
@@ -0,0 +1,93 @@
+package com.wmods.wppenhacer.xposed.features.privacy;
+
+import android.content.SharedPreferences;
+
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-contact overrides compiled from the "number_privacy" JSON entries of the private
+ * preferences. The upper 16 bits of an entry mark which flags are overridden and the lower
+ * 16 bits hold their values, so one lookup resolves every flag against the global defaults.
+ */
+final class PolicyTable {
+
+    static final String PRIVACY_SUFFIX = "_privacy";
+    // index i holds the JSON key of flag 1 << i
+    private static final String[] POLICY_KEYS = {"HideSeen", "HideViewStatus", "HideReceipt", "HideTyping", "HideRecording", "BlockCall"};
+
+    private final SharedPreferences prefs;
+    private volatile Map<String, Integer> entries;
+    // SharedPreferences keeps listeners in a weak map, so the reference must be held here
+    private SharedPreferences.OnSharedPreferenceChangeListener listener;
+
+    PolicyTable(SharedPreferences prefs) {
+        this.prefs = prefs;
+    }
+
+    /**
+     * Returns the flags in effect for {@code number}: its overrides applied over {@code defaults}.
+     */
+    int resolve(String number, int defaults) {
+        var entry = getEntries().get(number);
+        if (entry == null) return defaults;
+        return merge(entry, defaults);
+    }
+
+    static int merge(int entry, int defaults) {
+        int overridden = entry >>> 16;
+        return (defaults & ~overridden) | (entry & overridden);
+    }
+
+    private Map<String, Integer> getEntries() {
+        var table = entries;
+        if (table != null) return table;
+        synchronized (this) {
+            if (entries == null) {
+                var newTable = new ConcurrentHashMap<String, Integer>();
+                for (var entry : prefs.getAll().entrySet()) {
+                    if (entry.getKey().endsWith(PRIVACY_SUFFIX) && entry.getValue() instanceof String json) {
+                        put(newTable, entry.getKey(), json);
+                    }
+                }
+                // a clear drops the table but keeps the listener, so register it only once
+                if (listener == null) {
+                    listener = (sharedPreferences, key) -> {
+                        if (key == null) {
+                            entries = null;
+                        } else if (key.endsWith(PRIVACY_SUFFIX)) {
+                            var current = entries;
+                            if (current != null) put(current, key, sharedPreferences.getString(key, null));
+                        }
+                    };
+                    prefs.registerOnSharedPreferenceChangeListener(listener);
+                }
+                entries = newTable;
+            }
+            return entries;
+        }
+    }
+
+    static void put(Map<String, Integer> table, String key, String json) {
+        var number = key.substring(0, key.length() - PRIVACY_SUFFIX.length());
+        if (json == null) {
+            table.remove(number);
+            return;
+        }
+        try {
+            var object = new JSONObject(json);
+            int entry = 0;
+            for (int i = 0; i < POLICY_KEYS.length; i++) {
+                if (!object.has(POLICY_KEYS[i])) continue;
+                entry |= (1 << i) << 16;
+                if (object.optBoolean(POLICY_KEYS[i])) entry |= 1 << i;
+            }
+            if (entry == 0) table.remove(number);
+            else table.put(number, entry);
+        } catch (Exception e) {
+            table.remove(number);
+        }
+    }
+}
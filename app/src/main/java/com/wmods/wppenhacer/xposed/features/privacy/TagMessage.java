@@ -59,7 +59,7 @@ public class TagMessage extends Feature {
                 keyObj = null;
                 var fmessage = new FMessageWpp(param.args[0]);
                 var key = fmessage.getKey();
-                if (!key.isFromMe && fmessage.isBroadcast()) {
+                if (!key.isFromMe() && fmessage.isBroadcast()) {
                     var view = (ViewGroup) param.thisObject;
                     var res = view.findViewById((int) param.args[1]);
                     if (res == null) {
@@ -21,8 +21,6 @@ public class TypingPrivacy extends Feature {
     @Override
     public void doHook() throws Throwable {
         var ghostmode = WppCore.getPrivBoolean("ghostmode", false);
-        var ghostmode_t = prefs.getBoolean("ghostmode_t", false);
-        var ghostmode_r = prefs.getBoolean("ghostmode_r", false);
         Method method = Unobfuscator.loadGhostModeMethod(classLoader);
         logDebug(Unobfuscator.getMethodDescriptor(method));
         XposedBridge.hookMethod(method, new XC_MethodHook() {
@@ -31,9 +29,9 @@ public class TypingPrivacy extends Feature {
                 var p1 = (int) param.args[2];
                 var userJid = param.args[1];
                 var number = WppCore.stripJID(WppCore.getRawString(userJid));
-                var privacy = CustomPrivacy.getJSON(number);
-                var customHideTyping = privacy.optBoolean("HideTyping", ghostmode_t);
-                var customHideRecording = privacy.optBoolean("HideRecording", ghostmode_r);
+                var policies = CustomPrivacy.getPolicies(number, false);
+                var customHideTyping = (policies & CustomPrivacy.HIDE_TYPING) != 0;
+                var customHideRecording = (policies & CustomPrivacy.HIDE_RECORDING) != 0;
                 if ((p1 == 1 && (customHideRecording || ghostmode)) || (p1 == 0 && (customHideTyping || ghostmode))) {
                     param.setResult(null);
                 }
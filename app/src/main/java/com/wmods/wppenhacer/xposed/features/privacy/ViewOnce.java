@@ -32,7 +32,7 @@ public class ViewOnce extends Feature {
                     protected void beforeHookedMethod(MethodHookParam param) {
                         int returnValue = (int) param.args[0];
                         var fMessage = new FMessageWpp(param.thisObject);
-                        if (returnValue == 1 && !fMessage.getKey().isFromMe) {
+                        if (returnValue == 1 && !fMessage.getKey().isFromMe()) {
                             param.args[0] = 0;
                         }
                     }
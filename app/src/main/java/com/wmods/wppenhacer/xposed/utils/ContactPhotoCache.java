@@ -0,0 +1,115 @@
+package com.wmods.wppenhacer.xposed.utils;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+
+/**
+ * Memory-bounded cache of decoded contact avatars shared by every feature.
+ * Bitmaps are decoded with sampling close to the requested size and keyed by JID and size,
+ * an entry is reloaded when the avatar file modification time changes.
+ */
+public class ContactPhotoCache {
+
+    private static final LruCache<String, CachedPhoto> cache = new LruCache<>((int) Math.min(Runtime.getRuntime().maxMemory() / 16, 16 * 1024 * 1024)) {
+        @Override
+        protected int sizeOf(String key, CachedPhoto value) {
+            return value.bitmap.getAllocationByteCount();
+        }
+    };
+    private static boolean callbacksRegistered;
+
+    /**
+     * @param file   the avatar file
+     * @param key    the contact JID
+     * @param sizePx the size the avatar will be drawn at, or 0 to decode at full size
+     */
+    @Nullable
+    public static Drawable getDrawable(@NonNull File file, @NonNull String key, int sizePx) {
+        var bitmap = getBitmap(file, key, sizePx);
+        if (bitmap == null) return null;
+        return new BitmapDrawable(Utils.getApplication().getResources(), bitmap);
+    }
+
+    @Nullable
+    public static Bitmap getBitmap(@NonNull File file, @NonNull String key, int sizePx) {
+        registerCallbacks();
+        var cacheKey = key + "_" + sizePx;
+        var lastModified = file.lastModified();
+        var cached = cache.get(cacheKey);
+        if (cached != null && cached.lastModified == lastModified) {
+            return cached.bitmap;
+        }
+        var bitmap = decodeSampled(file, sizePx);
+        if (bitmap == null) {
+            cache.remove(cacheKey);
+            return null;
+        }
+        cache.put(cacheKey, new CachedPhoto(bitmap, lastModified));
+        return bitmap;
+    }
+
+    public static void clear() {
+        cache.evictAll();
+    }
+
+    @Nullable
+    private static Bitmap decodeSampled(File file, int sizePx) {
+        var options = new BitmapFactory.Options();
+        if (sizePx > 0) {
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+            var sampleSize = 1;
+            while (options.outWidth / (sampleSize * 2) >= sizePx && options.outHeight / (sampleSize * 2) >= sizePx) {
+                sampleSize *= 2;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize;
+        }
+        return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+    }
+
+    private static synchronized void registerCallbacks() {
+        if (callbacksRegistered) return;
+        callbacksRegistered = true;
+        Utils.getApplication().registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_BACKGROUND) {
+                    cache.evictAll();
+                } else if (level >= TRIM_MEMORY_RUNNING_LOW || level == TRIM_MEMORY_UI_HIDDEN) {
+                    cache.trimToSize(cache.maxSize() / 2);
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(@NonNull Configuration configuration) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                cache.evictAll();
+            }
+        });
+    }
+
+    private static class CachedPhoto {
+        final Bitmap bitmap;
+        final long lastModified;
+
+        CachedPhoto(Bitmap bitmap, long lastModified) {
+            this.bitmap = bitmap;
+            this.lastModified = lastModified;
+        }
+    }
+}
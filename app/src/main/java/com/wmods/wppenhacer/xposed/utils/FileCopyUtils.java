@@ -0,0 +1,112 @@
+package com.wmods.wppenhacer.xposed.utils;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * Stream copy used for saved media.
+ * <p>
+ * When both ends are backed by file descriptors the copy goes through
+ * {@link FileChannel#transferTo}, which the runtime maps to sendfile, so the bytes never enter the
+ * Java heap. Anything else (pipes from a document provider, for instance) falls back to a 256 KB
+ * buffer. Progress is reported every 8 MB, and the cancellation signal is checked before each
+ * 8 MB transfer and each buffered read, so a large video can be stopped part way.
+ */
+public class FileCopyUtils {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long CHUNK_SIZE = 8L * 1024 * 1024;
+
+    public interface ProgressListener {
+        /**
+         * @param total bytes expected, or -1 when the source cannot tell
+         */
+        void onProgress(long copied, long total);
+    }
+
+    /**
+     * Copies {@code in} to {@code out} without closing either of them.
+     *
+     * @return the number of bytes copied
+     */
+    public static long copy(@NonNull InputStream in, @NonNull OutputStream out) throws IOException {
+        return copy(in, out, null, null);
+    }
+
+    /**
+     * Same as {@link #copy(InputStream, OutputStream)}, reporting progress and checking
+     * {@code cancellation} between steps.
+     *
+     * @throws android.os.OperationCanceledException once {@code cancellation} is cancelled, with
+     *                                               {@code out} left partly written
+     */
+    public static long copy(@NonNull InputStream in, @NonNull OutputStream out, @Nullable ProgressListener listener, @Nullable CancellationSignal cancellation) throws IOException {
+        if (in instanceof FileInputStream fileIn && out instanceof FileOutputStream fileOut) {
+            var source = fileIn.getChannel();
+            var target = fileOut.getChannel();
+            long sourceStart, targetStart, size;
+            try {
+                sourceStart = source.position();
+                targetStart = target.position();
+                size = source.size();
+            } catch (IOException e) {
+                // pipes and sockets cannot seek
+                sourceStart = targetStart = size = 0;
+            }
+            // a zero size also comes back for pipes, which are read until EOF below instead
+            if (size > sourceStart) {
+                try {
+                    return transfer(source, target, sourceStart, size, listener, cancellation);
+                } catch (IOException e) {
+                    // sendfile is not supported for every descriptor pair, start over with plain reads
+                    target.truncate(targetStart);
+                    target.position(targetStart);
+                    source.position(sourceStart);
+                }
+            }
+        }
+        return bufferedCopy(in, out, listener, cancellation);
+    }
+
+    private static long transfer(FileChannel source, FileChannel target, long start, long size, @Nullable ProgressListener listener, @Nullable CancellationSignal cancellation) throws IOException {
+        long total = size - start;
+        long copied = 0;
+        while (copied < total) {
+            if (cancellation != null) cancellation.throwIfCanceled();
+            long count = source.transferTo(start + copied, Math.min(CHUNK_SIZE, total - copied), target);
+            if (count <= 0) break;
+            copied += count;
+            if (listener != null) listener.onProgress(copied, total);
+        }
+        source.position(start + copied);
+        return copied;
+    }
+
+    private static long bufferedCopy(InputStream in, OutputStream out, @Nullable ProgressListener listener, @Nullable CancellationSignal cancellation) throws IOException {
+        var buffer = new byte[BUFFER_SIZE];
+        long copied = 0;
+        long reported = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (cancellation != null) cancellation.throwIfCanceled();
+            out.write(buffer, 0, read);
+            copied += read;
+            if (listener != null && copied - reported >= CHUNK_SIZE) {
+                reported = copied;
+                listener.onProgress(copied, -1);
+            }
+        }
+        out.flush();
+        if (listener != null && reported != copied) listener.onProgress(copied, -1);
+        return copied;
+    }
+}
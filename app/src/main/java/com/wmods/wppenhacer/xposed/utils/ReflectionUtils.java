@@ -4,13 +4,21 @@ import android.util.Pair;
 
 import androidx.annotation.NonNull;
 
+import com.wmods.wppenhacer.BuildConfig;
+
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -28,6 +36,22 @@ public class ReflectionUtils {
             "boolean", Boolean.TYPE
     );
 
+    /**
+     * Members resolved by the cached lookups, per class and lookup key. Misses are stored as
+     * {@link #NOT_FOUND} so failing lookups are not repeated either.
+     * Classes are weak keys so the entries die with their classloader. A member references its
+     * declaring class, so the per-class maps are held softly, otherwise they would keep their own
+     * key reachable. Type lookups are keyed by the Class itself so a hit allocates nothing.
+     */
+    private static final Map<Class<?>, SoftReference<Map<String, Object>>> methodCache = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final Map<Class<?>, SoftReference<Map<String, Object>>> fieldCache = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final Map<Class<?>, SoftReference<Map<Class<?>, Object>>> fieldByTypeCache = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final Map<Class<?>, SoftReference<Map<Class<?>, Object>>> fieldByExtendTypeCache = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final Map<String, Class<?>> filterByKey = new ConcurrentHashMap<>();
+    private static final Object NOT_FOUND = new Object();
+    private static final AtomicLong lookupHits = new AtomicLong();
+    private static final AtomicLong lookupMisses = new AtomicLong();
+
     public static Class<?> findClass(String className, ClassLoader classLoader) {
         var primitive = primitiveClasses.get(className);
         if (primitive != null) return primitive;
@@ -42,6 +66,21 @@ public class ReflectionUtils {
         throw new RuntimeException("Method not found");
     }
 
+    /**
+     * Cached variant of {@link #findMethodUsingFilter(Class, Predicate)}. {@code key} must
+     * identify the predicate, the same key must always be used with the same filter.
+     */
+    public static Method findMethodUsingFilter(Class<?> clazz, String key, Predicate<Method> predicate) {
+        var method = findMethodUsingFilterIfExists(clazz, key, predicate);
+        if (method == null) throw new RuntimeException("Method not found");
+        return method;
+    }
+
+    public static Method findMethodUsingFilterIfExists(Class<?> clazz, String key, Predicate<Method> predicate) {
+        checkKey("method:", key, predicate);
+        return (Method) cachedLookup(methodCache, clazz, key, predicate, ReflectionUtils::findMethodUsingFilterIfExists);
+    }
+
     /**
      * @noinspection SimplifyStreamApiCallChains
      */
@@ -61,6 +100,21 @@ public class ReflectionUtils {
         throw new RuntimeException("Field not found");
     }
 
+    /**
+     * Cached variant of {@link #findFieldUsingFilter(Class, Predicate)}. {@code key} must
+     * identify the predicate, the same key must always be used with the same filter.
+     */
+    public static Field findFieldUsingFilter(Class<?> clazz, String key, Predicate<Field> predicate) {
+        var field = findFieldUsingFilterIfExists(clazz, key, predicate);
+        if (field == null) throw new RuntimeException("Field not found");
+        return field;
+    }
+
+    public static Field findFieldUsingFilterIfExists(Class<?> clazz, String key, Predicate<Field> predicate) {
+        checkKey("field:", key, predicate);
+        return (Field) cachedLookup(fieldCache, clazz, key, predicate, ReflectionUtils::findFieldUsingFilterIfExists);
+    }
+
     /**
      * @noinspection SimplifyStreamApiCallChains
      */
@@ -131,11 +185,60 @@ public class ReflectionUtils {
     }
 
     public static Field getFieldByExtendType(Class<?> cls, Class<?> type) {
-        return Arrays.stream(cls.getFields()).filter(f -> type.isAssignableFrom(f.getType())).findFirst().orElse(null);
+        return (Field) cachedLookup(fieldByExtendTypeCache, cls, type, type, (c, t) -> Arrays.stream(c.getFields()).filter(f -> t.isAssignableFrom(f.getType())).findFirst().orElse(null));
     }
 
     public static Field getFieldByType(Class<?> cls, Class<?> type) {
-        return Arrays.stream(cls.getFields()).filter(f -> type == f.getType()).findFirst().orElse(null);
+        return (Field) cachedLookup(fieldByTypeCache, cls, type, type, (c, t) -> Arrays.stream(c.getFields()).filter(f -> t == f.getType()).findFirst().orElse(null));
+    }
+
+    /**
+     * {@code lookup} only receives its inputs as arguments, so callers pass non-capturing
+     * lambdas and nothing is allocated on a hit.
+     */
+    private static <K, A> Object cachedLookup(Map<Class<?>, SoftReference<Map<K, Object>>> cache, Class<?> clazz, K key, A arg, BiFunction<Class<?>, A, ?> lookup) {
+        var ref = cache.get(clazz);
+        var members = ref != null ? ref.get() : null;
+        if (members == null) {
+            synchronized (cache) {
+                ref = cache.get(clazz);
+                members = ref != null ? ref.get() : null;
+                if (members == null) {
+                    members = new ConcurrentHashMap<>();
+                    cache.put(clazz, new SoftReference<>(members));
+                }
+            }
+        }
+        Object member = members.get(key);
+        if (member != null) {
+            lookupHits.incrementAndGet();
+        } else {
+            lookupMisses.incrementAndGet();
+            member = lookup.apply(clazz, arg);
+            if (member == null) member = NOT_FOUND;
+            members.put(key, member);
+        }
+        return member == NOT_FOUND ? null : member;
+    }
+
+    /**
+     * Debug builds verify that a key is only used with one filter. A filter is identified by its
+     * class, which is the same for every lambda created at one call site. A collision would
+     * otherwise silently return the member found by the other filter.
+     */
+    private static void checkKey(String kind, String key, Object predicate) {
+        if (!BuildConfig.DEBUG) return;
+        var owner = filterByKey.putIfAbsent(kind + key, predicate.getClass());
+        if (owner != null && owner != predicate.getClass()) {
+            throw new IllegalStateException("Lookup key \"" + key + "\" is used with two different filters");
+        }
+    }
+
+    /**
+     * @return hits and misses of the cached member lookups since start
+     */
+    public static long[] getLookupCacheStats() {
+        return new long[]{lookupHits.get(), lookupMisses.get()};
     }
 
     public static Object callMethod(Method method, Object instance, Object... args) {
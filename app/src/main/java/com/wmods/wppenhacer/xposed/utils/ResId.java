@@ -24,6 +24,9 @@ public class ResId {
 
     public static class string {
         public static int edited_history;
+        public static int search_messages;
+        public static int no_messages_found;
+        public static int download_all;
         public static int dnd_message;
         public static int dnd_mode_title;
         public static int freezelastseen_message;
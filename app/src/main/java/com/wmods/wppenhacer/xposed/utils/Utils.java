@@ -8,42 +8,52 @@ import android.app.NotificationManager;
 import android.content.ClipData;
 import android.content.ClipboardManager;
 import android.content.ComponentName;
-import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.media.MediaScannerConnection;
 import android.net.Uri;
 import android.os.Binder;
+import android.os.CancellationSignal;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.os.ParcelFileDescriptor;
 import android.text.TextUtils;
 import android.util.DisplayMetrics;
 import android.util.TypedValue;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
 import androidx.documentfile.provider.DocumentFile;
 
 import com.wmods.wppenhacer.App;
 import com.wmods.wppenhacer.WppXposed;
+import com.wmods.wppenhacer.xposed.bridge.WaeIIFace;
 import com.wmods.wppenhacer.xposed.core.FeatureLoader;
 import com.wmods.wppenhacer.xposed.core.WppCore;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
@@ -58,6 +68,7 @@ public class Utils {
     private static final ExecutorService executorCachedService = Executors.newCachedThreadPool();
     public static XSharedPreferences xprefs;
     private static final HashMap<String, Integer> ids = new HashMap<>();
+    private static final ConcurrentHashMap<String, DateTimeFormatter> dateFormatters = new ConcurrentHashMap<>();
 
     public static void init(ClassLoader loader) {
         var context = Utils.getApplication();
@@ -142,7 +153,17 @@ public class Utils {
     }
 
     public static String getDateTimeFromMillis(long timestamp) {
-        return new SimpleDateFormat("dd/MM/yyyy hh:mm:ss a", Locale.getDefault()).format(new Date(timestamp));
+        return formatDate("dd/MM/yyyy hh:mm:ss a", timestamp);
+    }
+
+    /**
+     * Formats {@code timestamp} in the default zone and locale. Formatters are immutable and
+     * cached per pattern and locale, so this is safe to call from any thread and per list row.
+     */
+    public static String formatDate(String pattern, long timestamp) {
+        var locale = Locale.getDefault();
+        var formatter = dateFormatters.computeIfAbsent(pattern + "|" + locale.toLanguageTag(), k -> DateTimeFormatter.ofPattern(pattern, locale));
+        return formatter.format(Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()));
     }
 
     @SuppressLint("SdCardPath")
@@ -161,10 +182,7 @@ public class Utils {
         String folder = WppXposed.getPref().getString("download_local", "/sdcard/Download");
         var waFolder = new File(folder, "WhatsApp");
         var filePath = new File(waFolder, name);
-        try {
-            WppCore.getClientBridge().createDir(filePath.getAbsolutePath());
-        } catch (Exception ignored) {
-        }
+        // the folder is created by the bridge when the first file is copied into it
         return filePath.getAbsolutePath() + "/";
 
     }
@@ -186,61 +204,169 @@ public class Utils {
     }
 
 
+    /**
+     * Copies {@code srcFile} into {@code destFolder}. Outside lite mode the copy is handed to the
+     * bridge through {@link #copyFiles(List, List, List)} and this waits for it, so it must not be
+     * called on the main thread.
+     *
+     * @return an error message, empty on success
+     */
     public static String copyFile(File srcFile, String destFolder, String name) {
         if (srcFile == null || !srcFile.exists()) return "File not found or is null";
 
-        if (xprefs.getBoolean("lite_mode", false)) {
-            try {
-                var folder = WppCore.getPrivString("download_folder", null);
-                DocumentFile documentFolder = DocumentFile.fromTreeUri(Utils.getApplication(), Uri.parse(folder));
-                destFolder = destFolder.replace(folder + "/", "");
-                for (String f : destFolder.split("/")) {
-                    documentFolder = Utils.getURIFolderByName(documentFolder, f, false);
-                    if (documentFolder == null) return "Failed to get folder";
-                }
-                DocumentFile newFile = documentFolder.createFile("*/*", name);
-                if (newFile == null) return "Failed to create destination file";
+        if (!xprefs.getBoolean("lite_mode", false)) {
+            return copyFiles(Collections.singletonList(srcFile), Collections.singletonList(destFolder), Collections.singletonList(name)).join().get(0);
+        }
+        return copyToDocument(srcFile, destFolder, name, null, null);
+    }
 
-                ContentResolver contentResolver = Utils.getApplication().getContentResolver();
+    /**
+     * Same as {@link #copyFile(File, String, String)}, but the bytes are copied in this process so
+     * progress can be reported and the copy cancelled part way. Outside lite mode they go to a
+     * hidden part file opened through {@code bridge}, which is moved over {@code name} once
+     * complete.
+     *
+     * @param bridge the connected service, see {@link WppCore#withBridge}; unused in lite mode
+     * @return an error message, empty on success
+     */
+    public static String copyFile(@Nullable WaeIIFace bridge, File srcFile, String destFolder, String name, @Nullable FileCopyUtils.ProgressListener listener, @Nullable CancellationSignal cancellation) {
+        if (srcFile == null || !srcFile.exists()) return "File not found or is null";
 
-                try (InputStream in = new FileInputStream(srcFile);
-                     OutputStream out = contentResolver.openOutputStream(newFile.getUri())) {
+        if (xprefs.getBoolean("lite_mode", false)) {
+            return copyToDocument(srcFile, destFolder, name, listener, cancellation);
+        }
+        if (bridge == null) return "Failed connect to Bridge";
+        var partPath = new File(destFolder, "." + name + ".part").getAbsolutePath();
+        var destPath = new File(destFolder, name).getAbsolutePath();
+        try {
+            if (!bridge.createDirs(new String[]{destFolder})[0]) return "Failed to create folder";
+            var descriptor = bridge.openFile(partPath, true);
+            if (descriptor == null) return "Failed to open output stream";
+            try (var in = new FileInputStream(srcFile);
+                 var out = new ParcelFileDescriptor.AutoCloseOutputStream(descriptor)) {
+                // openFile does not truncate, and an earlier attempt may have left a longer part
+                out.getChannel().truncate(0);
+                try {
+                    FileCopyUtils.copy(in, out, listener, cancellation);
+                } catch (IOException | RuntimeException e) {
+                    // the bridge cannot delete, so at least do not keep the partial bytes around
+                    out.getChannel().truncate(0);
+                    throw e;
+                }
+            }
+            if (!bridge.moveFiles(new String[]{partPath}, new String[]{destPath})[0]) return "Failed to move file";
+            Utils.scanFile(new File(destPath));
+            return "";
+        } catch (Exception e) {
+            if (!(e instanceof OperationCanceledException)) XposedBridge.log(e);
+            return String.valueOf(e.getMessage());
+        }
+    }
 
-                    if (out == null) return "Failed to open output stream";
+    private static String copyToDocument(File srcFile, String destFolder, String name, @Nullable FileCopyUtils.ProgressListener listener, @Nullable CancellationSignal cancellation) {
+        DocumentFile newFile = null;
+        try {
+            var folder = WppCore.getPrivString("download_folder", null);
+            DocumentFile documentFolder = DocumentFile.fromTreeUri(Utils.getApplication(), Uri.parse(folder));
+            destFolder = destFolder.replace(folder + "/", "");
+            for (String f : destFolder.split("/")) {
+                documentFolder = Utils.getURIFolderByName(documentFolder, f, false);
+                if (documentFolder == null) return "Failed to get folder";
+            }
+            newFile = documentFolder.createFile("*/*", name);
+            if (newFile == null) return "Failed to create destination file";
+            var parcelFileDescriptor = Utils.getApplication().getContentResolver().openFileDescriptor(newFile.getUri(), "w");
+            if (parcelFileDescriptor == null) {
+                newFile.delete();
+                return "Failed to open output stream";
+            }
+            try (var in = new FileInputStream(srcFile);
+                 var out = new ParcelFileDescriptor.AutoCloseOutputStream(parcelFileDescriptor)) {
+                FileCopyUtils.copy(in, out, listener, cancellation);
+            }
+            return "";
+        } catch (Exception e) {
+            if (!(e instanceof OperationCanceledException)) XposedBridge.log(e);
+            // do not leave an empty or partial file behind
+            if (newFile != null) newFile.delete();
+            return e.getMessage();
+        }
+    }
 
-                    byte[] buffer = new byte[1024];
-                    int length;
-                    while ((length = in.read(buffer)) > 0) {
-                        out.write(buffer, 0, length);
-                    }
+    /**
+     * Copies several files at once. In lite mode they are copied one by one right away. Otherwise
+     * the call goes through {@link WppCore#withBridge}, so no thread waits for the connection.
+     *
+     * @return one error message per file, empty when that file was copied; never completes
+     * exceptionally
+     */
+    public static CompletableFuture<List<String>> copyFiles(List<File> srcFiles, List<String> destFolders, List<String> names) {
+        var errors = new ArrayList<String>(srcFiles.size());
+        if (xprefs.getBoolean("lite_mode", false)) {
+            for (int i = 0; i < srcFiles.size(); i++) {
+                errors.add(copyFile(srcFiles.get(i), destFolders.get(i), names.get(i)));
+            }
+            return CompletableFuture.completedFuture(errors);
+        }
+        return WppCore.withBridge(bridge -> errors.addAll(copyFiles(bridge, srcFiles, destFolders, names))).handle((v, e) -> {
+            if (e != null) {
+                var cause = e.getCause() != null ? e.getCause() : e;
+                while (errors.size() < srcFiles.size()) errors.add(String.valueOf(cause.getMessage()));
+            }
+            return errors;
+        });
+    }
 
-                    return "";
+    /**
+     * Copies several files through the connected {@code bridge}: the destination folders are
+     * created with one createDirs call and the files sent with one copyFiles call.
+     *
+     * @return one error message per file, empty when that file was copied
+     */
+    public static List<String> copyFiles(@NonNull WaeIIFace bridge, List<File> srcFiles, List<String> destFolders, List<String> names) {
+        var errors = new ArrayList<String>(srcFiles.size());
+        var sources = new ParcelFileDescriptor[srcFiles.size()];
+        var destPaths = new String[srcFiles.size()];
+        try {
+            for (int i = 0; i < sources.length; i++) {
+                var srcFile = srcFiles.get(i);
+                destPaths[i] = new File(destFolders.get(i), names.get(i)).getAbsolutePath();
+                if (srcFile == null || !srcFile.exists()) continue;
+                sources[i] = ParcelFileDescriptor.open(srcFile, ParcelFileDescriptor.MODE_READ_ONLY);
+            }
+            var folders = new LinkedHashSet<>(destFolders).toArray(new String[0]);
+            var created = bridge.createDirs(folders);
+            var missingFolders = new HashSet<String>();
+            for (int i = 0; i < folders.length; i++) {
+                if (!created[i]) missingFolders.add(folders[i]);
+            }
+            var results = bridge.copyFiles(sources, destPaths);
+            for (int i = 0; i < sources.length; i++) {
+                if (sources[i] == null) {
+                    errors.add("File not found or is null");
+                } else if (missingFolders.contains(destFolders.get(i))) {
+                    errors.add("Failed to create folder");
+                } else if (!results[i]) {
+                    errors.add("Failed to copy file");
+                } else {
+                    Utils.scanFile(new File(destPaths[i]));
+                    errors.add("");
                 }
-            } catch (Exception e) {
-                XposedBridge.log(e);
-                return e.getMessage();
             }
-        } else {
-            File destFile = new File(destFolder, name);
-            try (FileInputStream in = new FileInputStream(srcFile);
-                 var parcelFileDescriptor = WppCore.getClientBridge().openFile(destFile.getAbsolutePath(), true)) {
-                var out = new FileOutputStream(parcelFileDescriptor.getFileDescriptor());
-                byte[] bArr = new byte[1024];
-                while (true) {
-                    int read = in.read(bArr);
-                    if (read <= 0) {
-                        in.close();
-                        out.close();
-                        Utils.scanFile(destFile);
-                        return "";
-                    }
-                    out.write(bArr, 0, read);
+        } catch (Exception e) {
+            XposedBridge.log(e);
+            while (errors.size() < sources.length) errors.add(e.getMessage());
+        } finally {
+            // the binder duplicates the descriptors, so the local copies are always ours to close
+            for (var source : sources) {
+                if (source == null) continue;
+                try {
+                    source.close();
+                } catch (IOException ignored) {
                 }
-            } catch (Exception e) {
-                XposedBridge.log(e);
-                return e.getMessage();
             }
         }
+        return errors;
     }
 
 
@@ -265,7 +391,7 @@ public class Utils {
     public static String generateName(Object userJid, String fileFormat) {
         var contactName = WppCore.getContactName(userJid);
         var number = WppCore.stripJID(WppCore.getRawString(userJid));
-        return toValidFileName(contactName) + "_" + number + "_" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.getDefault()).format(new Date()) + "." + fileFormat;
+        return toValidFileName(contactName) + "_" + number + "_" + formatDate("yyyyMMdd-HHmmss", System.currentTimeMillis()) + "." + fileFormat;
     }
 
 
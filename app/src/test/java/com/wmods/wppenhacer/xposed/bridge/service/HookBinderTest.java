@@ -0,0 +1,184 @@
+package com.wmods.wppenhacer.xposed.bridge.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.wmods.wppenhacer.xposed.bridge.FileStat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+public class HookBinderTest {
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("hookbinder").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (var paths = Files.walk(root.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * Stands in for a ParcelFileDescriptor: counts its closes and serves its content.
+     */
+    private static class FakeDescriptor implements Closeable {
+        final String content;
+        int closed;
+
+        FakeDescriptor(String content) {
+            this.content = content;
+        }
+
+        @Override
+        public void close() {
+            closed++;
+        }
+    }
+
+    // closes the descriptor with the stream, like ParcelFileDescriptor.AutoCloseInputStream
+    private static final Function<FakeDescriptor, InputStream> OPEN = descriptor ->
+            new FilterInputStream(new ByteArrayInputStream(descriptor.content.getBytes(StandardCharsets.UTF_8))) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    descriptor.close();
+                }
+            };
+
+    private static class FakeOperations implements FileOperations {
+        final List<String> copied = new ArrayList<>();
+        String failOn;
+        String throwOn;
+
+        @NonNull
+        @Override
+        public FileStat stat(@NonNull String path) {
+            return new FileStat(path, 0, 0, 0);
+        }
+
+        @NonNull
+        @Override
+        public FileStat[] list(@NonNull String path) {
+            return new FileStat[0];
+        }
+
+        @Override
+        public boolean mkdirs(@NonNull String path) {
+            return true;
+        }
+
+        @Override
+        public boolean copy(@NonNull InputStream source, @NonNull String destPath) {
+            if (destPath.equals(throwOn)) throw new IllegalStateException("disk gone");
+            if (destPath.equals(failOn)) return false;
+            try {
+                copied.add(destPath + "=" + new String(source.readAllBytes(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean move(@NonNull String sourcePath, @NonNull String destPath) {
+            return true;
+        }
+    }
+
+    @Test
+    public void copiesInOrderAndClosesEveryDescriptor() {
+        var a = new FakeDescriptor("a");
+        var b = new FakeDescriptor("b");
+        var c = new FakeDescriptor("c");
+        var operations = new FakeOperations();
+        operations.failOn = "/dest/b";
+
+        var result = HookBinder.copyAll(new FakeDescriptor[]{a, b, null, c}, new String[]{"/dest/a", "/dest/b", "/dest/x", "/dest/c"}, OPEN, operations);
+
+        assertArrayEquals(new boolean[]{true, false, false, true}, result);
+        assertEquals(List.of("/dest/a=a", "/dest/c=c"), operations.copied);
+        assertEquals(1, a.closed);
+        assertEquals(1, b.closed);
+        assertEquals(1, c.closed);
+    }
+
+    @Test
+    public void lengthMismatchClosesAllDescriptors() {
+        var a = new FakeDescriptor("a");
+        var b = new FakeDescriptor("b");
+        var operations = new FakeOperations();
+
+        assertThrows(IllegalArgumentException.class, () -> HookBinder.copyAll(new FakeDescriptor[]{a, b}, new String[]{"/dest/a"}, OPEN, operations));
+        assertTrue(operations.copied.isEmpty());
+        assertEquals(1, a.closed);
+        assertEquals(1, b.closed);
+    }
+
+    @Test
+    public void throwingCopyStillClosesEveryDescriptor() {
+        var a = new FakeDescriptor("a");
+        var b = new FakeDescriptor("b");
+        var c = new FakeDescriptor("c");
+        var operations = new FakeOperations();
+        operations.throwOn = "/dest/b";
+
+        assertThrows(IllegalStateException.class, () -> HookBinder.copyAll(new FakeDescriptor[]{a, b, c}, new String[]{"/dest/a", "/dest/b", "/dest/c"}, OPEN, operations));
+        assertEquals(List.of("/dest/a=a"), operations.copied);
+        // a and b were closed by their streams, c never got one
+        assertEquals(1, a.closed);
+        assertEquals(1, b.closed);
+        assertEquals(1, c.closed);
+    }
+
+    @Test
+    public void localOperationsListCreateAndMove() throws Exception {
+        var operations = new LocalFileOperations();
+        var nested = new File(root, "a/b");
+
+        assertTrue(operations.mkdirs(nested.getPath()));
+        // an existing folder counts as created
+        assertTrue(operations.mkdirs(nested.getPath()));
+        var source = new File(root, "src.txt");
+        Files.write(source.toPath(), "hello".getBytes(StandardCharsets.UTF_8));
+
+        var dest = new File(root, "c/moved.txt");
+        assertTrue(operations.move(source.getPath(), dest.getPath()));
+        assertFalse(source.exists());
+        assertEquals("hello", new String(Files.readAllBytes(dest.toPath()), StandardCharsets.UTF_8));
+        assertFalse(operations.move(source.getPath(), dest.getPath()));
+
+        var listing = operations.list(new File(root, "c").getPath());
+        assertEquals(1, listing.length);
+        assertEquals("moved.txt", listing[0].name);
+        assertEquals(5, listing[0].size);
+        assertTrue(listing[0].exists());
+        assertFalse(listing[0].isDirectory());
+        assertEquals(0, operations.list(new File(root, "missing").getPath()).length);
+    }
+}
@@ -0,0 +1,128 @@
+package com.wmods.wppenhacer.xposed.core;
+
+import static org.junit.Assert.assertEquals;
+
+import android.app.Activity;
+
+import com.wmods.wppenhacer.xposed.core.WppCore.ActivityChangeState;
+import com.wmods.wppenhacer.xposed.core.WppCore.ActivityChangeState.ChangeType;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+public class ActivityListenersTest {
+
+    public static class HomeActivity extends Activity {
+    }
+
+    public static class ConversationActivity extends Activity {
+    }
+
+    public static class GroupConversationActivity extends ConversationActivity {
+    }
+
+    private final List<ActivityChangeState> registered = new ArrayList<>();
+    private final List<String> calls = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (var listener : registered) ActivityListeners.remove(listener);
+    }
+
+    private ActivityChangeState listen(String name, Class<?> activityClass, ChangeType first, ChangeType... rest) {
+        ActivityChangeState listener = (activity, type) -> calls.add(name + ":" + activity.getClass().getSimpleName() + ":" + type);
+        ActivityListeners.add(activityClass, EnumSet.of(first, rest), listener);
+        registered.add(listener);
+        return listener;
+    }
+
+    @Test
+    public void dispatchMatchesClassAndType() {
+        listen("conv", ConversationActivity.class, ChangeType.STARTED);
+        listen("all", Activity.class, ChangeType.RESUMED);
+
+        ActivityListeners.dispatch(new GroupConversationActivity(), ChangeType.STARTED);
+        ActivityListeners.dispatch(new HomeActivity(), ChangeType.STARTED);
+        ActivityListeners.dispatch(new HomeActivity(), ChangeType.RESUMED);
+
+        assertEquals(List.of("conv:GroupConversationActivity:STARTED", "all:HomeActivity:RESUMED"), calls);
+    }
+
+    @Test
+    public void registeringAgainMergesTypes() {
+        var listener = listen("conv", ConversationActivity.class, ChangeType.STARTED);
+        ActivityListeners.add(ConversationActivity.class, EnumSet.of(ChangeType.ENDED), listener);
+
+        var activity = new ConversationActivity();
+        ActivityListeners.dispatch(activity, ChangeType.STARTED);
+        ActivityListeners.dispatch(activity, ChangeType.ENDED);
+
+        assertEquals(List.of("conv:ConversationActivity:STARTED", "conv:ConversationActivity:ENDED"), calls);
+    }
+
+    @Test
+    public void listenerMatchingTwiceRunsOnce() {
+        var listener = listen("both", Activity.class, ChangeType.CREATED);
+        ActivityListeners.add(ConversationActivity.class, EnumSet.of(ChangeType.CREATED), listener);
+
+        ActivityListeners.dispatch(new ConversationActivity(), ChangeType.CREATED);
+
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    public void registrationsInvalidateTheCachedRow() {
+        var activity = new HomeActivity();
+        listen("first", HomeActivity.class, ChangeType.PAUSED);
+        ActivityListeners.dispatch(activity, ChangeType.PAUSED);
+
+        var second = listen("second", Activity.class, ChangeType.PAUSED);
+        ActivityListeners.dispatch(activity, ChangeType.PAUSED);
+
+        ActivityListeners.remove(second);
+        ActivityListeners.dispatch(activity, ChangeType.PAUSED);
+
+        assertEquals(List.of("first:HomeActivity:PAUSED", "first:HomeActivity:PAUSED", "second:HomeActivity:PAUSED", "first:HomeActivity:PAUSED"), calls);
+    }
+
+    @Test
+    public void failingListenerDoesNotStopTheOthers() {
+        ActivityChangeState failing = (activity, type) -> {
+            throw new IllegalStateException("listener failure");
+        };
+        ActivityListeners.add(Activity.class, EnumSet.of(ChangeType.ENDED), failing);
+        registered.add(failing);
+        listen("after", Activity.class, ChangeType.ENDED);
+
+        ActivityListeners.dispatch(new HomeActivity(), ChangeType.ENDED);
+
+        assertEquals(List.of("after:HomeActivity:ENDED"), calls);
+    }
+
+    @Test
+    public void benchmarkDispatchWith50Listeners() {
+        int[] hits = new int[1];
+        for (int i = 0; i < 50; i++) {
+            ActivityChangeState listener = (activity, type) -> hits[0]++;
+            // half of them ask for a subclass and a type that the loop below never hits
+            if (i % 2 == 0) ActivityListeners.add(Activity.class, EnumSet.of(ChangeType.RESUMED), listener);
+            else ActivityListeners.add(GroupConversationActivity.class, EnumSet.of(ChangeType.PAUSED), listener);
+            registered.add(listener);
+        }
+        var activities = new Activity[]{new HomeActivity(), new ConversationActivity(), new GroupConversationActivity()};
+
+        int events = 300_000;
+        var start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            ActivityListeners.dispatch(activities[i % activities.length], ChangeType.RESUMED);
+        }
+        var dispatchNs = (System.nanoTime() - start) / events;
+
+        System.out.println("ActivityListeners dispatch to 25 of 50 listeners: " + dispatchNs + " ns");
+        assertEquals(events * 25, hits[0]);
+    }
+}
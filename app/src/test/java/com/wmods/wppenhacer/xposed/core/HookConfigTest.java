@@ -0,0 +1,95 @@
+package com.wmods.wppenhacer.xposed.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.wmods.wppenhacer.xposed.FakePreferences;
+import com.wmods.wppenhacer.xposed.features.privacy.CallPrivacy;
+import com.wmods.wppenhacer.xposed.features.privacy.CustomPrivacy;
+
+import org.junit.Test;
+
+import java.util.Set;
+
+public class HookConfigTest {
+
+    @Test
+    public void parseListSplitsAndTrims() {
+        assertEquals(Set.of("111", "222", "333"), HookConfig.parseList("[111, 222,333 ]"));
+    }
+
+    @Test
+    public void parseListHandlesEmptyInput() {
+        assertTrue(HookConfig.parseList(null).isEmpty());
+        assertTrue(HookConfig.parseList("").isEmpty());
+        assertTrue(HookConfig.parseList("[]").isEmpty());
+        assertEquals(Set.of("1"), HookConfig.parseList("[, 1, ]"));
+    }
+
+    @Test
+    public void updatePublishesNewSnapshot() {
+        var prefs = new FakePreferences();
+        prefs.edit()
+                .putString("antirevoke", "2")
+                .putString("call_privacy", "3")
+                .putString("call_block_contacts", "[5511999, 5511888]")
+                .putString("custom_privacy_type", "1")
+                .putBoolean("hidestatusview", true)
+                .commit();
+
+        HookConfig.update(prefs);
+        var config = HookConfig.get();
+        assertSame(config, HookConfig.get());
+        assertEquals(2, config.antiRevoke);
+        assertEquals(CallPrivacy.PrivacyType.BACKLIST, config.callPrivacy);
+        assertTrue(config.callBlockContacts.contains("5511888"));
+        assertTrue(config.callWhiteContacts.isEmpty());
+        assertTrue(config.customPrivacy);
+        assertTrue(config.hideStatusView);
+        assertEquals(CustomPrivacy.HIDE_VIEW_STATUS, config.privacyDefaults);
+
+        prefs.edit().putString("antirevoke", "not a number").putString("custom_privacy_type", "0").commit();
+        HookConfig.update(prefs);
+        var updated = HookConfig.get();
+        assertNotSame(config, updated);
+        assertEquals(0, updated.antiRevoke);
+        assertFalse(updated.customPrivacy);
+
+        prefs.edit().putBoolean("hideread", true).putBoolean("ghostmode_t", true).commit();
+        HookConfig.update(prefs);
+        var privacy = HookConfig.get();
+        assertEquals(CustomPrivacy.HIDE_SEEN | CustomPrivacy.HIDE_VIEW_STATUS | CustomPrivacy.HIDE_TYPING, privacy.privacyDefaults);
+        // groups use hideread_group for the seen flag
+        assertEquals(CustomPrivacy.HIDE_VIEW_STATUS | CustomPrivacy.HIDE_TYPING, privacy.groupPrivacyDefaults);
+        // the old snapshot is immutable
+        assertEquals(2, config.antiRevoke);
+    }
+
+    @Test
+    public void benchmarkBuildAndLookup() {
+        var prefs = new FakePreferences();
+        var contacts = new StringBuilder("[");
+        for (int i = 0; i < 500; i++) contacts.append(i == 0 ? "" : ", ").append(5511900000L + i);
+        prefs.edit().putString("call_block_contacts", contacts.append(']').toString()).putString("antirevoke", "1").commit();
+
+        int builds = 2_000;
+        var start = System.nanoTime();
+        for (int i = 0; i < builds; i++) HookConfig.update(prefs);
+        var buildNs = (System.nanoTime() - start) / builds;
+
+        var config = HookConfig.get();
+        int lookups = 1_000_000;
+        int found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            if (HookConfig.get().antiRevoke == 1 && config.callBlockContacts.contains("5511900250")) found++;
+        }
+        var lookupNs = (System.nanoTime() - start) / lookups;
+
+        System.out.println("HookConfig build: " + buildNs + " ns, lookup: " + lookupNs + " ns");
+        assertEquals(lookups, found);
+    }
+}
@@ -0,0 +1,90 @@
+package com.wmods.wppenhacer.xposed.core.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class JidWppTest {
+
+    @Test
+    public void parsesUserAndKind() {
+        var contact = JidWpp.of("5511999999999@s.whatsapp.net");
+        assertEquals("5511999999999", contact.user);
+        assertFalse(contact.isGroup());
+
+        var device = JidWpp.of("5511999999999.0:12@s.whatsapp.net");
+        assertEquals("5511999999999", device.user);
+        assertFalse(device.isGroup());
+
+        var group = JidWpp.of("120363012345678901@g.us");
+        assertEquals("120363012345678901", group.user);
+        assertTrue(group.isGroup());
+
+        var legacyGroup = JidWpp.of("5511999999999-1600000000@g.us");
+        assertTrue(legacyGroup.isGroup());
+
+        assertEquals("status", JidWpp.of("status@broadcast").user);
+        assertEquals("5511999999999", JidWpp.of("5511999999999").user);
+        assertTrue(JidWpp.of("12036301234567890").isGroup());
+        assertNull(JidWpp.of(null));
+    }
+
+    @Test
+    public void internsEqualStrings() {
+        var first = JidWpp.of(new String("5511888888888@s.whatsapp.net"));
+        var second = JidWpp.of(new String("5511888888888@s.whatsapp.net"));
+        assertSame(first, second);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        var kept = JidWpp.of("5511000000001@s.whatsapp.net");
+        var dropped = JidWpp.of("5511000000002@s.whatsapp.net");
+        for (int i = 0; i < JidWpp.CACHE_SIZE; i++) {
+            JidWpp.of("5521" + i + "@s.whatsapp.net");
+            // a JID in use stays cached while others come and go
+            assertSame(kept, JidWpp.of("5511000000001@s.whatsapp.net"));
+        }
+        assertNotSame(dropped, JidWpp.of("5511000000002@s.whatsapp.net"));
+    }
+
+    @Test
+    public void benchmarkMissAndHit() {
+        int count = JidWpp.CACHE_SIZE / 2;
+        int rounds = 200;
+        // every miss parses a JID that is not cached and evicts the eldest entry
+        var misses = new String[rounds * count];
+        for (int i = 0; i < misses.length; i++) misses[i] = (5531900000000L + i) + ".0:" + (i % 8) + "@s.whatsapp.net";
+        var start = System.nanoTime();
+        for (var raw : misses) sink(JidWpp.of(raw));
+        var missNs = (System.nanoTime() - start) / misses.length;
+
+        var raws = new String[count];
+        var copies = new String[count];
+        for (int i = 0; i < count; i++) {
+            raws[i] = (5511900000000L + i) + ".0:" + (i % 8) + "@s.whatsapp.net";
+            // equal but distinct strings, like the ones WhatsApp hands to the hooks
+            copies[i] = new String(raws[i]);
+            JidWpp.of(raws[i]);
+        }
+        start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (var raw : copies) sink(JidWpp.of(raw));
+        }
+        var hitNs = (System.nanoTime() - start) / ((long) rounds * count);
+
+        System.out.println("JidWpp miss: " + missNs + " ns, hit: " + hitNs + " ns");
+        assertEquals("5511900000000", JidWpp.of(copies[0]).user);
+    }
+
+    private static int sunk;
+
+    private static void sink(JidWpp jid) {
+        sunk += jid.user.length();
+    }
+}
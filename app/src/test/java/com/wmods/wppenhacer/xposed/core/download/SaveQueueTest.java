@@ -0,0 +1,292 @@
+package com.wmods.wppenhacer.xposed.core.download;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+public class SaveQueueTest {
+
+    private static final int LOW = 0;
+    private static final int HIGH = 10;
+
+    private static class FakeStore implements SaveQueue.Store {
+        final Map<String, SaveJob> jobs = new LinkedHashMap<>();
+        boolean failPut;
+
+        @NonNull
+        @Override
+        public List<SaveJob> loadAll() {
+            return new ArrayList<>(jobs.values());
+        }
+
+        @Override
+        public void put(@NonNull SaveJob job) {
+            if (failPut) throw new IllegalStateException("disk full");
+            jobs.put(job.key, job);
+        }
+
+        @Override
+        public void remove(@NonNull String key) {
+            jobs.remove(key);
+        }
+    }
+
+    /**
+     * Records scheduled retries instead of waiting for them.
+     */
+    private static class ManualScheduler extends ScheduledThreadPoolExecutor {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Long> delays = new ArrayList<>();
+
+        ManualScheduler() {
+            super(0);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            tasks.add(command);
+            delays.add(unit.toMillis(delay));
+            return null;
+        }
+
+        void runAll() {
+            var due = new ArrayList<>(tasks);
+            tasks.clear();
+            due.forEach(Runnable::run);
+        }
+    }
+
+    private final FakeStore store = new FakeStore();
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final Map<String, long[]> files = new HashMap<>();
+    private final List<Runnable> batches = new ArrayList<>();
+    private final List<List<SaveJob>> copied = new ArrayList<>();
+    private final List<String> results = new ArrayList<>();
+    private Function<SaveJob, SaveQueue.Result> copier = job -> SaveQueue.Result.saved(job.destFolder + "/" + job.name);
+    private SaveQueue queue;
+
+    @Before
+    public void setUp() {
+        files.put("/src/a.mp4", new long[]{100, 1});
+        files.put("/src/b.jpg", new long[]{200, 2});
+        SaveQueue.Copier batchCopier = jobs -> {
+            copied.add(new ArrayList<>(jobs));
+            var list = new ArrayList<SaveQueue.Result>();
+            for (var job : jobs) list.add(copier.apply(job));
+            return CompletableFuture.completedFuture(list);
+        };
+        // batches only run when the test says so
+        queue = new SaveQueue(store, files::get, batchCopier, batches::add, scheduler, 1, (job, error) -> results.add("default:" + error));
+    }
+
+    private SaveQueue.Listener listener(String tag) {
+        return (job, error) -> results.add(tag + ":" + error);
+    }
+
+    private void runBatches() {
+        while (!batches.isEmpty()) batches.remove(0).run();
+    }
+
+    @Test
+    public void mergesSavesOfTheSameFile() {
+        assertTrue(queue.enqueue("/src/a.mp4", "/dest", "a.mp4", 0, null, listener("first")));
+        assertFalse(queue.enqueue("/src/a.mp4", "/dest", "other.mp4", 0, null, listener("second")));
+        assertEquals(1, queue.size());
+        assertEquals(1, store.jobs.size());
+
+        runBatches();
+
+        assertEquals(1, copied.size());
+        assertEquals(1, copied.get(0).size());
+        assertEquals(List.of("first:", "second:"), results);
+        assertEquals("/dest/a.mp4", copied.get(0).get(0).getSavedPath());
+        assertEquals(0, queue.size());
+        assertTrue(store.jobs.isEmpty());
+    }
+
+    @Test
+    public void changedFileIsANewJob() {
+        assertTrue(queue.enqueue("/src/a.mp4", "/dest", "a.mp4", 0, null, null));
+        files.put("/src/a.mp4", new long[]{150, 5});
+        assertTrue(queue.enqueue("/src/a.mp4", "/dest", "a2.mp4", 0, null, null));
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void missingSourceIsReportedRightAway() {
+        assertFalse(queue.enqueue("/src/missing.mp4", "/dest", "x.mp4", 0, null, listener("missing")));
+        assertEquals(List.of("missing:File not found or is null"), results);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void batchesByPriorityHighestFirst() {
+        // the first job takes the only slot, the rest wait and are batched per priority
+        queue.enqueue("/src/a.mp4", "/dest", "a.mp4", LOW, null, null);
+        files.put("/src/c.jpg", new long[]{300, 3});
+        queue.enqueue("/src/b.jpg", "/dest", "b.jpg", LOW, null, null);
+        queue.enqueue("/src/c.jpg", "/dest", "c.jpg", HIGH, null, null);
+
+        runBatches();
+
+        assertEquals(3, copied.size());
+        assertEquals("a.mp4", copied.get(0).get(0).name);
+        assertEquals("c.jpg", copied.get(1).get(0).name);
+        assertEquals("b.jpg", copied.get(2).get(0).name);
+    }
+
+    @Test
+    public void retriesWithBackoffUntilSaved() {
+        var attempts = new int[1];
+        copier = job -> ++attempts[0] < 3 ? SaveQueue.Result.retry("bridge down") : SaveQueue.Result.saved("/dest/a.mp4");
+        queue.enqueue("/src/a.mp4", "/dest", "a.mp4", 0, null, listener("a"));
+
+        runBatches();
+        assertTrue(results.isEmpty());
+        // the retry count is persisted so a restart does not reset it
+        assertEquals(1, store.jobs.values().iterator().next().getAttempts());
+        scheduler.runAll();
+        runBatches();
+        scheduler.runAll();
+        runBatches();
+
+        assertEquals(List.of(2000L, 4000L), scheduler.delays);
+        assertEquals(List.of("a:"), results);
+        assertTrue(store.jobs.isEmpty());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        copier = job -> SaveQueue.Result.retry("bridge down");
+        queue.enqueue("/src/a.mp4", "/dest", "a.mp4", 0, null, listener("a"));
+
+        runBatches();
+        while (!scheduler.tasks.isEmpty()) {
+            scheduler.runAll();
+            runBatches();
+        }
+
+        assertEquals(SaveQueue.MAX_ATTEMPTS, copied.size());
+        assertEquals(SaveQueue.MAX_ATTEMPTS - 1, scheduler.delays.size());
+        assertEquals(List.of("a:bridge down"), results);
+        assertEquals(0, queue.size());
+        assertTrue(store.jobs.isEmpty());
+    }
+
+    @Test
+    public void batchKeepsItsSlotUntilTheCopyCompletes() {
+        var pending = new CompletableFuture<List<SaveQueue.Result>>();
+        queue = new SaveQueue(store, files::get, jobs -> {
+            copied.add(new ArrayList<>(jobs));
+            return copied.size() == 1 ? pending : CompletableFuture.completedFuture(List.of(SaveQueue.Result.saved("/dest/b.jpg")));
+        }, batches::add, scheduler, 1, listener("default"));
+        queue.enqueue("/src/a.mp4", "/dest", "a.mp4", 0, null, listener("a"));
+        queue.enqueue("/src/b.jpg", "/dest", "b.jpg", 0, null, listener("b"));
+
+        runBatches();
+        // the first batch is still waiting, for the bridge for instance, so b has not started
+        assertEquals(1, copied.size());
+        assertTrue(results.isEmpty());
+
+        pending.complete(List.of(SaveQueue.Result.saved("/dest/a.mp4")));
+        runBatches();
+        assertEquals(2, copied.size());
+        assertEquals(List.of("a:", "b:"), results);
+    }
+
+    @Test
+    public void failedFutureFailsTheBatch() {
+        queue = new SaveQueue(store, files::get, jobs -> CompletableFuture.failedFuture(new IllegalStateException("bridge gone")), batches::add, scheduler, 1, listener("default"));
+        queue.enqueue("/src/a.mp4", "/dest", "a.mp4", 0, null, listener("a"));
+        runBatches();
+
+        assertEquals(List.of("a:bridge gone"), results);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void failedResultIsNotRetried() {
+        copier = job -> SaveQueue.Result.failed("no space");
+        queue.enqueue("/src/a.mp4", "/dest", "a.mp4", 0, null, listener("a"));
+        runBatches();
+
+        assertTrue(scheduler.tasks.isEmpty());
+        assertEquals(List.of("a:no space"), results);
+    }
+
+    @Test
+    public void throwingCopierFailsTheWholeBatch() {
+        copier = job -> {
+            throw new IllegalStateException("boom");
+        };
+        queue.enqueue("/src/a.mp4", "/dest", "a.mp4", 0, null, listener("a"));
+        runBatches();
+
+        assertEquals(List.of("a:boom"), results);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void rollsBackWhenTheStoreFails() {
+        store.failPut = true;
+        assertFalse(queue.enqueue("/src/a.mp4", "/dest", "a.mp4", 0, null, listener("a")));
+        assertEquals(List.of("a:Failed to queue file: disk full"), results);
+        assertEquals(0, queue.size());
+        assertTrue(batches.isEmpty());
+
+        // the key was released, so the next save is a new job instead of merging into a dead one
+        store.failPut = false;
+        assertTrue(queue.enqueue("/src/a.mp4", "/dest", "a.mp4", 0, null, listener("again")));
+        runBatches();
+        assertEquals(List.of("a:Failed to queue file: disk full", "again:"), results);
+    }
+
+    @Test
+    public void cancelsWaitingJob() {
+        queue.enqueue("/src/a.mp4", "/dest", "a.mp4", 0, null, listener("a"));
+        queue.enqueue("/src/b.jpg", "/dest", "b.jpg", 0, null, listener("b"));
+        var key = SaveJob.keyOf("/src/b.jpg", 200, 2);
+
+        assertTrue(queue.cancel(key));
+        assertEquals(List.of("b:" + SaveQueue.CANCELLED), results);
+        assertNull(store.jobs.get(key));
+        assertFalse(queue.cancel(key));
+
+        runBatches();
+        assertEquals(1, copied.size());
+        assertEquals(List.of("b:" + SaveQueue.CANCELLED, "a:"), results);
+    }
+
+    @Test
+    public void restoresStoredJobsWithTheDefaultListener() {
+        var job = new SaveJob("/src/a.mp4", 100, 1, "/dest", "a.mp4", 0, 1, 2, "hash");
+        store.jobs.put(job.key, job);
+
+        queue.restore();
+        // restoring twice does not queue the job again
+        queue.restore();
+        runBatches();
+
+        assertEquals(1, copied.size());
+        assertSame(job, copied.get(0).get(0));
+        assertEquals(List.of("default:"), results);
+    }
+}
@@ -0,0 +1,89 @@
+package com.wmods.wppenhacer.xposed.features.general;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PropsTableTest {
+
+    @Test
+    public void emptyTableReturnsDefaults() {
+        var table = new PropsTable();
+        assertFalse(table.contains(0));
+        assertFalse(table.contains(-1));
+        assertEquals(7, table.getInt(4023, 7));
+    }
+
+    @Test
+    public void putKeepsIdsSortedAndOverwrites() {
+        var table = new PropsTable();
+        table.put(9000, 3);
+        table.put(5, true);
+        table.put(130, 2);
+        table.put(5, false);
+
+        assertEquals(0, table.getInt(5, -1));
+        assertEquals(2, table.getInt(130, -1));
+        assertEquals(3, table.getInt(9000, -1));
+        assertEquals(-1, table.getInt(131, -1));
+    }
+
+    @Test
+    public void lookupsOutsideTheBitsetAreRejected() {
+        var table = new PropsTable();
+        table.put(63, 1);
+        table.put(64, 2);
+
+        // the bitset is sized from the largest id
+        assertEquals(2, table.getInt(64, -1));
+        assertFalse(table.contains(128));
+        assertFalse(table.contains(Integer.MAX_VALUE));
+        assertEquals(-1, table.getInt(65, -1));
+    }
+
+    @Test
+    public void negativeIdsSkipTheBitset() {
+        var table = new PropsTable();
+        table.put(-5, 1);
+        assertTrue(table.contains(-5));
+        assertFalse(table.contains(-6));
+        assertFalse(table.contains(59));
+
+        table.put(10, 1);
+        assertEquals(1, table.getInt(-5, 0));
+        assertEquals(1, table.getInt(10, 0));
+    }
+
+    @Test
+    public void removeDropsOnlyThatId() {
+        var table = new PropsTable();
+        table.put(1, 1);
+        table.put(2, 2);
+        table.put(3, 3);
+        table.remove(2);
+        table.remove(42);
+
+        assertFalse(table.contains(2));
+        assertEquals(1, table.getInt(1, 0));
+        assertEquals(3, table.getInt(3, 0));
+    }
+
+    @Test
+    public void benchmarkLookup() {
+        var table = new PropsTable();
+        for (int id = 0; id < 4000; id += 20) table.put(id, id);
+
+        int lookups = 5_000_000;
+        long sum = 0;
+        var start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            sum += table.getInt(i & 4095, 0);
+        }
+        var lookupNs = (System.nanoTime() - start) * 1000 / lookups;
+
+        System.out.println("PropsTable lookup: " + lookupNs / 1000.0 + " ns");
+        assertTrue(sum > 0);
+    }
+}
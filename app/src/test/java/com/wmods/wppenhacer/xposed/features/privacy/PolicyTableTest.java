@@ -0,0 +1,112 @@
+package com.wmods.wppenhacer.xposed.features.privacy;
+
+import static com.wmods.wppenhacer.xposed.features.privacy.CustomPrivacy.BLOCK_CALL;
+import static com.wmods.wppenhacer.xposed.features.privacy.CustomPrivacy.HIDE_RECEIPT;
+import static com.wmods.wppenhacer.xposed.features.privacy.CustomPrivacy.HIDE_SEEN;
+import static com.wmods.wppenhacer.xposed.features.privacy.CustomPrivacy.HIDE_TYPING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.wmods.wppenhacer.xposed.FakePreferences;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+
+public class PolicyTableTest {
+
+    @Test
+    public void putPacksOverriddenFlagsAndValues() {
+        var table = new HashMap<String, Integer>();
+        PolicyTable.put(table, "5511999_privacy", "{\"HideSeen\":true,\"HideReceipt\":false,\"BlockCall\":true}");
+
+        int entry = table.get("5511999");
+        assertEquals(HIDE_SEEN | HIDE_RECEIPT | BLOCK_CALL, entry >>> 16);
+        assertEquals(HIDE_SEEN | BLOCK_CALL, entry & 0xFFFF);
+    }
+
+    @Test
+    public void putRemovesEmptyAndInvalidEntries() {
+        var table = new HashMap<String, Integer>();
+        PolicyTable.put(table, "1_privacy", "{\"HideSeen\":true}");
+        PolicyTable.put(table, "2_privacy", "{\"HideSeen\":true}");
+        PolicyTable.put(table, "3_privacy", "{\"HideSeen\":true}");
+
+        PolicyTable.put(table, "1_privacy", "{}");
+        PolicyTable.put(table, "2_privacy", "not json");
+        PolicyTable.put(table, "3_privacy", null);
+
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    public void mergeAppliesOverridesOverDefaults() {
+        // overrides HideSeen on and HideReceipt off, leaves HideTyping to the default
+        int entry = ((HIDE_SEEN | HIDE_RECEIPT) << 16) | HIDE_SEEN;
+
+        assertEquals(HIDE_SEEN | HIDE_TYPING, PolicyTable.merge(entry, HIDE_RECEIPT | HIDE_TYPING));
+        assertEquals(HIDE_SEEN, PolicyTable.merge(entry, 0));
+    }
+
+    @Test
+    public void resolveFollowsPreferenceChanges() {
+        var prefs = new FakePreferences();
+        prefs.edit().putString("111_privacy", "{\"HideSeen\":false}").putString("unrelated", "x").commit();
+        var table = new PolicyTable(prefs);
+
+        assertEquals(HIDE_RECEIPT, table.resolve("111", HIDE_SEEN | HIDE_RECEIPT));
+        assertEquals(HIDE_SEEN, table.resolve("222", HIDE_SEEN));
+
+        prefs.edit().putString("222_privacy", "{\"HideSeen\":false}").commit();
+        assertEquals(0, table.resolve("222", HIDE_SEEN));
+
+        prefs.edit().remove("111_privacy").commit();
+        assertEquals(HIDE_SEEN, table.resolve("111", HIDE_SEEN));
+    }
+
+    @Test
+    public void clearReloadsWithoutRegisteringAgain() {
+        var prefs = new FakePreferences();
+        prefs.edit().putString("111_privacy", "{\"HideSeen\":true}").commit();
+        var table = new PolicyTable(prefs);
+        assertEquals(HIDE_SEEN, table.resolve("111", 0));
+        assertEquals(1, prefs.listenerCount());
+
+        prefs.edit().clear().commit();
+        assertEquals(0, table.resolve("111", 0));
+        prefs.edit().clear().putString("333_privacy", "{\"HideTyping\":true}").commit();
+        assertEquals(HIDE_TYPING, table.resolve("333", 0));
+
+        assertEquals(1, prefs.listenerCount());
+    }
+
+    @Test
+    public void benchmarkResolve() {
+        var prefs = new FakePreferences();
+        var editor = prefs.edit();
+        for (int i = 0; i < 1_000; i++) {
+            editor.putString((5511900000L + i) + "_privacy", i % 2 == 0 ? "{\"HideSeen\":true,\"HideTyping\":false}" : "{\"BlockCall\":true}");
+        }
+        editor.commit();
+        var table = new PolicyTable(prefs);
+        var numbers = new String[1_000];
+        for (int i = 0; i < numbers.length; i++) numbers[i] = String.valueOf(5511900000L + i);
+
+        var start = System.nanoTime();
+        table.resolve(numbers[0], 0);
+        var loadNs = System.nanoTime() - start;
+
+        int lookups = 1_000_000;
+        int hidden = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            if ((table.resolve(numbers[i % numbers.length], HIDE_TYPING) & HIDE_SEEN) != 0) hidden++;
+        }
+        var resolveNs = (System.nanoTime() - start) / lookups;
+
+        System.out.println("PolicyTable load: " + loadNs / 1000 + " us, resolve: " + resolveNs + " ns");
+        assertEquals(lookups / 2, hidden);
+        assertFalse((table.resolve(numbers[0], HIDE_TYPING) & HIDE_TYPING) != 0);
+    }
+}
@@ -0,0 +1,126 @@
+package com.wmods.wppenhacer.xposed.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class FileCopyUtilsTest {
+
+    private File source;
+    private File target;
+
+    @Before
+    public void setUp() throws IOException {
+        source = File.createTempFile("copy-source", ".bin");
+        target = File.createTempFile("copy-target", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        source.delete();
+        target.delete();
+    }
+
+    private byte[] writeSource(int size) throws IOException {
+        var data = new byte[size];
+        new Random(size).nextBytes(data);
+        Files.write(source.toPath(), data);
+        return data;
+    }
+
+    @Test
+    public void copiesFilesThroughChannels() throws IOException {
+        var data = writeSource(20 * 1024 * 1024 + 17);
+        var progress = new ArrayList<long[]>();
+        long copied;
+        try (var in = new FileInputStream(source); var out = new FileOutputStream(target)) {
+            copied = FileCopyUtils.copy(in, out, (done, total) -> progress.add(new long[]{done, total}), null);
+        }
+
+        assertEquals(data.length, copied);
+        assertArrayEquals(data, Files.readAllBytes(target.toPath()));
+        // one report per 8 MB chunk, the size is known up front
+        assertEquals(3, progress.size());
+        assertEquals(data.length, progress.get(2)[0]);
+        assertEquals(data.length, progress.get(2)[1]);
+    }
+
+    @Test
+    public void copiesFromTheCurrentPosition() throws IOException {
+        var data = writeSource(1000);
+        try (var in = new FileInputStream(source); var out = new FileOutputStream(target)) {
+            assertEquals(100, in.skip(100));
+            assertEquals(900, FileCopyUtils.copy(in, out));
+            // the source is left at the end, like a stream copy
+            assertEquals(-1, in.read());
+        }
+        var expected = new byte[900];
+        System.arraycopy(data, 100, expected, 0, 900);
+        assertArrayEquals(expected, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void copiesOtherStreamsThroughTheBuffer() throws IOException {
+        var data = writeSource(9 * 1024 * 1024);
+        var progress = new ArrayList<long[]>();
+        try (var in = new BufferedInputStream(new FileInputStream(source)); var out = new FileOutputStream(target)) {
+            assertEquals(data.length, FileCopyUtils.copy(in, out, (done, total) -> progress.add(new long[]{done, total}), null));
+        }
+
+        assertArrayEquals(data, Files.readAllBytes(target.toPath()));
+        // the total is unknown, and the last report covers the tail
+        assertEquals(2, progress.size());
+        assertEquals(data.length, progress.get(1)[0]);
+        assertEquals(-1, progress.get(1)[1]);
+    }
+
+    @Test
+    public void copiesEmptyFiles() throws IOException {
+        writeSource(0);
+        try (var in = new FileInputStream(source); var out = new FileOutputStream(target)) {
+            assertEquals(0, FileCopyUtils.copy(in, out));
+        }
+        assertEquals(0, target.length());
+    }
+
+    @Test
+    public void benchmark200MbCopy() throws IOException {
+        int size = 200 * 1024 * 1024;
+        var block = new byte[1024 * 1024];
+        new Random(1).nextBytes(block);
+        try (var out = new FileOutputStream(source)) {
+            for (int i = 0; i < size / block.length; i++) out.write(block);
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (var buffered : new boolean[]{false, true}) {
+            // best of three, the first run also pays for allocating the target blocks
+            long ms = Long.MAX_VALUE;
+            for (int run = 0; run < 3; run++) {
+                var start = System.nanoTime();
+                try (var in = buffered ? new BufferedInputStream(new FileInputStream(source)) : new FileInputStream(source);
+                     var out = new FileOutputStream(target)) {
+                    assertEquals(size, FileCopyUtils.copy(in, out));
+                }
+                ms = Math.min(ms, Math.max(1, (System.nanoTime() - start) / 1_000_000));
+            }
+            lines.add((buffered ? "buffered" : "transferTo") + ": " + ms + " ms, " + (size / 1024 / 1024 * 1000L / ms) + " MB/s");
+        }
+
+        System.out.println("FileCopyUtils 200 MB " + String.join(", ", lines));
+        assertEquals(size, target.length());
+    }
+}
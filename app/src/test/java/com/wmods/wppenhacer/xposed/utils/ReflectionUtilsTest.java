@@ -0,0 +1,96 @@
+package com.wmods.wppenhacer.xposed.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+public class ReflectionUtilsTest {
+
+    @SuppressWarnings("unused")
+    public static class Base {
+        public List<String> items;
+
+        void baseMethod(String value) {
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class Target extends Base {
+        public CharSequence label;
+        private int count;
+
+        void ownMethod() {
+        }
+    }
+
+    @Test
+    public void cachesMethodsPerClassAndKey() {
+        var calls = new AtomicInteger();
+        Predicate<Method> filter = method -> {
+            calls.incrementAndGet();
+            return method.getName().equals("baseMethod");
+        };
+
+        var first = ReflectionUtils.findMethodUsingFilterIfExists(Target.class, "test.baseMethod", filter);
+        var callsAfterFirst = calls.get();
+        var second = ReflectionUtils.findMethodUsingFilterIfExists(Target.class, "test.baseMethod", filter);
+
+        assertEquals("baseMethod", first.getName());
+        assertSame(first, second);
+        // the hit did not run the filter again
+        assertEquals(callsAfterFirst, calls.get());
+    }
+
+    @Test
+    public void cachesMisses() {
+        var calls = new AtomicInteger();
+        Predicate<Field> filter = field -> {
+            calls.incrementAndGet();
+            return false;
+        };
+
+        var statsBefore = ReflectionUtils.getLookupCacheStats();
+        assertNull(ReflectionUtils.findFieldUsingFilterIfExists(Target.class, "test.missing", filter));
+        var callsAfterFirst = calls.get();
+        assertNull(ReflectionUtils.findFieldUsingFilterIfExists(Target.class, "test.missing", filter));
+        var statsAfter = ReflectionUtils.getLookupCacheStats();
+
+        assertEquals(callsAfterFirst, calls.get());
+        assertEquals(statsBefore[0] + 1, statsAfter[0]);
+        assertEquals(statsBefore[1] + 1, statsAfter[1]);
+        assertThrows(RuntimeException.class, () -> ReflectionUtils.findFieldUsingFilter(Target.class, "test.missing", filter));
+    }
+
+    @Test
+    public void keysAreScopedToTheClass() {
+        Predicate<Method> filter = method -> method.getName().endsWith("Method");
+        var onTarget = ReflectionUtils.findMethodUsingFilterIfExists(Target.class, "test.anyMethod", filter);
+        var onBase = ReflectionUtils.findMethodUsingFilterIfExists(Base.class, "test.anyMethod", filter);
+
+        assertEquals("ownMethod", onTarget.getName());
+        assertEquals("baseMethod", onBase.getName());
+    }
+
+    @Test
+    public void rejectsKeyUsedWithAnotherFilter() {
+        ReflectionUtils.findFieldUsingFilterIfExists(Target.class, "test.shared", field -> field.getName().equals("label"));
+        assertThrows(IllegalStateException.class, () -> ReflectionUtils.findFieldUsingFilterIfExists(Target.class, "test.shared", field -> field.getName().equals("count")));
+    }
+
+    @Test
+    public void fieldByTypeMatchesExactAndAssignableTypes() {
+        assertEquals("label", ReflectionUtils.getFieldByType(Target.class, CharSequence.class).getName());
+        assertNull(ReflectionUtils.getFieldByType(Target.class, String.class));
+        assertEquals("items", ReflectionUtils.getFieldByExtendType(Target.class, Iterable.class).getName());
+        assertNull(ReflectionUtils.getFieldByExtendType(Target.class, Number.class));
+    }
+}